@@ -0,0 +1,73 @@
+package com.javasolution.app.mentoring;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.javasolution.app.mentoring.entities.Meeting;
+import com.javasolution.app.mentoring.entities.User;
+import com.javasolution.app.mentoring.entities.UserRole;
+import com.javasolution.app.mentoring.projections.MeetingView;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JsonSerializationBenchmark {
+
+    //configured like the object mapper of spring boot
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private User user;
+    private Meeting meeting;
+    private MeetingView meetingView;
+
+    @Setup
+    public void setUp() {
+        user = new User();
+        user.setId(1L);
+        user.setName("Jan");
+        user.setSurname("Kowalski");
+        user.setEmail("jan.kowalski@gmail.com");
+        user.setPassword("$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z3x/Q5Qy3i5FzY0aB9nD4dXe");
+        user.setUserRole(UserRole.MENTOR);
+        user.setEnabled(true);
+        user.setCreateAt(LocalDateTime.of(2030, 1, 1, 9, 0));
+
+        meeting = new Meeting();
+        meeting.setId(1L);
+        meeting.setMeetingDate(LocalDate.of(2030, 1, 1));
+        meeting.setMeetingStartTime(LocalTime.of(10, 0));
+        meeting.setMeetingEndTime(LocalTime.of(10, 15));
+        meeting.setCreateAt(LocalDateTime.of(2030, 1, 1, 9, 0));
+        meeting.setBooked(false);
+        meeting.setMentor(user);
+
+        meetingView = new MeetingView(meeting.getId(), meeting.getMeetingDate(), meeting.getMeetingStartTime(),
+                meeting.getMeetingEndTime(), meeting.getBooked(),
+                user.getId(), user.getName(), user.getSurname(), user.getEmail());
+    }
+
+    @Benchmark
+    public byte[] serializeUser() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(user);
+    }
+
+    @Benchmark
+    public byte[] serializeMeeting() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(meeting);
+    }
+
+    //what the list endpoints serialize for a meeting
+    @Benchmark
+    public byte[] serializeMeetingView() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(meetingView);
+    }
+}
@@ -0,0 +1,121 @@
+package com.javasolution.app.mentoring.repositories;
+
+import com.javasolution.app.mentoring.MentoringApplication;
+import com.javasolution.app.mentoring.entities.Meeting;
+import com.javasolution.app.mentoring.entities.User;
+import com.javasolution.app.mentoring.entities.UserRole;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//the collision lookup of adding meetings against a seeded h2 database, the time should not grow with the table
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MeetingRepositoryBenchmark {
+
+    private static final int MENTORS = 100;
+    private static final int SLOTS_PER_DAY = 32;
+    private static final int SEED_BATCH_SIZE = 10_000;
+    private static final LocalDate FIRST_DAY = LocalDate.of(2030, 1, 1);
+    private static final LocalTime FIRST_SLOT = LocalTime.of(8, 0);
+
+    //meetings in the table, every mentor has a full working day of slots on each day
+    @Param({"10000", "100000", "1000000"})
+    private int meetingsNumber;
+
+    private ConfigurableApplicationContext context;
+    private MeetingRepository meetingRepository;
+    private User mentor;
+    private LocalDate meetingDate;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+
+        context = new SpringApplicationBuilder(MentoringApplication.class)
+                .profiles("h2")
+                .run("--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:benchmark-" + meetingsNumber,
+                        "--spring.jpa.show-sql=false",
+                        "--spring.jpa.properties.hibernate.generate_statistics=false",
+                        "--mentoring.mail.outbox.poll-interval=3600000");
+        meetingRepository = context.getBean(MeetingRepository.class);
+
+        final List<User> mentors = createMentors(context.getBean(UserRepository.class));
+        seedMeetings(context.getBean(JdbcTemplate.class), mentors);
+
+        //a full day of the mentor in the middle of the table
+        mentor = mentors.get(MENTORS / 2);
+        meetingDate = FIRST_DAY.plusDays(meetingsNumber / (MENTORS * SLOTS_PER_DAY) / 2);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private static List<User> createMentors(final UserRepository userRepository) {
+
+        final List<User> mentors = new ArrayList<>();
+
+        for (int i = 0; i < MENTORS; i++) {
+            final User mentor = new User();
+            mentor.setName("Bench");
+            mentor.setSurname("Mentor");
+            mentor.setEmail("mentor" + i + "@benchmark.com");
+            mentor.setPassword("benchmark");
+            mentor.setUserRole(UserRole.MENTOR);
+            mentor.setEnabled(true);
+            mentors.add(mentor);
+        }
+
+        final List<User> savedMentors = new ArrayList<>();
+        userRepository.saveAll(mentors).forEach(savedMentors::add);
+        return savedMentors;
+    }
+
+    //plain jdbc batches, seeding a million rows through the entity manager would take longer than the measurement
+    private void seedMeetings(final JdbcTemplate jdbcTemplate, final List<User> mentors) {
+
+        final Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        final List<Object[]> rows = new ArrayList<>(SEED_BATCH_SIZE);
+
+        for (int i = 0; i < meetingsNumber; i++) {
+            final LocalDate date = FIRST_DAY.plusDays(i / (MENTORS * SLOTS_PER_DAY));
+            final User slotMentor = mentors.get(i / SLOTS_PER_DAY % MENTORS);
+            final LocalTime startTime = FIRST_SLOT.plusMinutes(15L * (i % SLOTS_PER_DAY));
+
+            rows.add(new Object[]{i + 1L, false, now, now, Date.valueOf(date),
+                    Time.valueOf(startTime), Time.valueOf(startTime.plusMinutes(15)), slotMentor.getId()});
+
+            if (rows.size() == SEED_BATCH_SIZE || i == meetingsNumber - 1) {
+                jdbcTemplate.batchUpdate("insert into meetings (id, booked, create_at, update_at, meeting_date, " +
+                        "meeting_start_time, meeting_end_time, mentor_id) values (?, ?, ?, ?, ?, ?, ?, ?)", rows);
+                rows.clear();
+            }
+        }
+    }
+
+    //the query behind findOverlappingMeetings, two hours across the slots of the day
+    @Benchmark
+    public List<Meeting> findAllOverlapping() {
+        return meetingRepository.findAllOverlapping(mentor, meetingDate, LocalTime.of(10, 0), LocalTime.of(12, 0));
+    }
+
+    //an evening after the slots of the day, the lookup of a meeting added without collisions
+    @Benchmark
+    public List<Meeting> findAllOverlappingFreeHours() {
+        return meetingRepository.findAllOverlapping(mentor, meetingDate, LocalTime.of(18, 0), LocalTime.of(20, 0));
+    }
+}
@@ -0,0 +1,29 @@
+package com.javasolution.app.mentoring.services;
+
+import com.javasolution.app.mentoring.entities.Meeting;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MeetingBookingServiceBenchmark {
+
+    private Meeting meeting;
+
+    @Setup
+    public void setUp() {
+        meeting = new Meeting();
+        meeting.setMeetingDate(LocalDate.of(2030, 1, 1));
+        meeting.setMeetingStartTime(LocalTime.of(10, 0));
+        meeting.setMeetingEndTime(LocalTime.of(10, 15));
+    }
+
+    @Benchmark
+    public String bookedMeetingMessage() {
+        return MeetingBookingService.bookedMeetingMessage(meeting, "Thank you for booking meeting!");
+    }
+}
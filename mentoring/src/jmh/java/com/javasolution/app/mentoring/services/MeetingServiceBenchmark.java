@@ -0,0 +1,56 @@
+package com.javasolution.app.mentoring.services;
+
+import com.javasolution.app.mentoring.entities.Meeting;
+import com.javasolution.app.mentoring.entities.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MeetingServiceBenchmark {
+
+    //quarters of hour the mentor already has on the day
+    @Param({"8", "96"})
+    private int databaseMeetingsNumber;
+
+    private User mentor;
+    private Meeting newMeeting;
+    private List<Meeting> newMeetings;
+    private List<Meeting> databaseMeetings;
+
+    @Setup
+    public void setUp() {
+        mentor = new User();
+        mentor.setId(1L);
+
+        //two hours in the evening, after the slots of the day
+        newMeeting = meeting(LocalTime.of(21, 0), LocalTime.of(23, 0));
+        newMeetings = MeetingService.splitIntoQuarters(newMeeting, mentor);
+
+        final Meeting day = meeting(LocalTime.MIN, LocalTime.MIN.plusMinutes(15L * databaseMeetingsNumber));
+        databaseMeetings = MeetingService.splitIntoQuarters(day, mentor);
+    }
+
+    private static Meeting meeting(final LocalTime startTime, final LocalTime endTime) {
+        final Meeting meeting = new Meeting();
+        meeting.setMeetingDate(LocalDate.of(2030, 1, 1));
+        meeting.setMeetingStartTime(startTime);
+        meeting.setMeetingEndTime(endTime);
+        return meeting;
+    }
+
+    @Benchmark
+    public List<Meeting> checkCollision() {
+        return MeetingService.checkCollision(databaseMeetings, newMeetings);
+    }
+
+    @Benchmark
+    public List<Meeting> splitIntoQuarters() {
+        return MeetingService.splitIntoQuarters(newMeeting, mentor);
+    }
+}
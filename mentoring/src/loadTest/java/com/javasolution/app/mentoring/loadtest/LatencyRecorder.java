@@ -0,0 +1,71 @@
+package com.javasolution.app.mentoring.loadtest;
+
+import java.io.PrintStream;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+//latencies and status codes of every request, grouped by endpoint
+class LatencyRecorder {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final ConcurrentMap<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    void record(final String endpoint, final int status, final long latencyNanos) {
+        endpoints.computeIfAbsent(endpoint, key -> new Endpoint()).record(status, latencyNanos);
+    }
+
+    void report(final PrintStream out, final long elapsedNanos) {
+
+        final double seconds = elapsedNanos / 1e9;
+        out.printf("%-36s %8s %9s %9s %9s %9s %9s %9s  %s%n",
+                "endpoint", "count", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "statuses");
+
+        new TreeMap<>(endpoints).forEach((name, endpoint) -> {
+            final long[] latencies = endpoint.sortedLatencies();
+            final StringBuilder row = new StringBuilder(String.format("%-36s %8d %9.1f",
+                    name, latencies.length, latencies.length / seconds));
+
+            for (double percentile : PERCENTILES)
+                row.append(String.format(" %9.2f", millis(percentile(latencies, percentile))));
+            row.append(String.format(" %9.2f  %s", millis(latencies[latencies.length - 1]), endpoint.statuses()));
+
+            out.println(row);
+        });
+    }
+
+    private static long percentile(final long[] sorted, final double percentile) {
+        final int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static double millis(final long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static class Endpoint {
+
+        private final List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicLongArray statuses = new AtomicLongArray(600);
+
+        void record(final int status, final long latencyNanos) {
+            latencies.add(latencyNanos);
+            statuses.incrementAndGet(status);
+        }
+
+        long[] sortedLatencies() {
+            synchronized (latencies) {
+                return latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+            }
+        }
+
+        Map<Integer, Long> statuses() {
+            final Map<Integer, Long> counts = new TreeMap<>();
+            for (int status = 0; status < statuses.length(); status++)
+                if (statuses.get(status) > 0) counts.put(status, statuses.get(status));
+            return counts;
+        }
+    }
+}
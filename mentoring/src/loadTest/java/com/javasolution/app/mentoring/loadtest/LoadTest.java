@@ -0,0 +1,159 @@
+package com.javasolution.app.mentoring.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.javasolution.app.mentoring.MentoringApplication;
+import com.javasolution.app.mentoring.entities.User;
+import com.javasolution.app.mentoring.entities.UserRole;
+import com.javasolution.app.mentoring.repositories.UserRepository;
+import com.javasolution.app.mentoring.security.BoundedPasswordEncoder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//starts the application on h2 with an smtp sink and replays the booking scenario at a fixed arrival rate
+public class LoadTest {
+
+    private static final String MENTOR_EMAIL = "mentor@loadtest.local";
+    private static final String MENTOR_PASSWORD = "mentor123";
+    private static final LocalTime FIRST_SLOT = LocalTime.of(8, 0);
+    private static final int SLOTS_PER_DAY = 48;
+
+    public static void main(final String[] args) throws Exception {
+
+        final int students = Integer.getInteger("loadTest.students", 300);
+        final double rate = Double.parseDouble(System.getProperty("loadTest.rate", "50"));
+        final int threads = Integer.getInteger("loadTest.threads", 100);
+        final int slots = Integer.getInteger("loadTest.slots", students);
+        final boolean cancel = Boolean.parseBoolean(System.getProperty("loadTest.cancel", "true"));
+        //jdbc:h2:file:./build/loadtest/mentoring for a file database
+        final String database = System.getProperty("loadTest.database", "jdbc:h2:mem:loadtest");
+
+        try (SmtpSink smtpSink = new SmtpSink();
+             ConfigurableApplicationContext context = start(smtpSink, database)) {
+
+            final String baseUri = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            final ObjectMapper mapper = context.getBean(ObjectMapper.class);
+            final ExecutorService workers = Executors.newFixedThreadPool(threads);
+            final HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+
+            createMentor(context);
+            createSlots(client, mapper, baseUri, slots);
+
+            final LatencyRecorder recorder = new LatencyRecorder();
+            final StudentScenario scenario = new StudentScenario(baseUri, client, mapper, recorder, smtpSink, cancel);
+            final AtomicInteger started = new AtomicInteger();
+            final AtomicInteger booked = new AtomicInteger();
+            final AtomicInteger failed = new AtomicInteger();
+            final CountDownLatch finished = new CountDownLatch(students);
+            final ScheduledExecutorService arrivals = Executors.newSingleThreadScheduledExecutor();
+
+            final long start = System.nanoTime();
+
+            //students arrive at the configured rate whether or not the earlier ones are done
+            arrivals.scheduleAtFixedRate(() -> {
+                final int student = started.getAndIncrement();
+                if (student >= students) {
+                    arrivals.shutdown();
+                    return;
+                }
+
+                workers.execute(() -> {
+                    try {
+                        if (scenario.run(student)) booked.incrementAndGet();
+                    } catch (final Exception ex) {
+                        failed.incrementAndGet();
+                    } finally {
+                        finished.countDown();
+                    }
+                });
+            }, 0, (long) (TimeUnit.SECONDS.toNanos(1) / rate), TimeUnit.NANOSECONDS);
+
+            finished.await();
+            final long elapsed = System.nanoTime() - start;
+            workers.shutdown();
+
+            System.out.printf("%nstudents: %d at %.1f/s, %d threads, %d slots, cancel: %s, database: %s%n",
+                    students, rate, threads, slots, cancel, database);
+            System.out.printf("elapsed: %.1f s, booked: %d, no free slot: %d, failed: %d, emails: %d%n%n",
+                    elapsed / 1e9, booked.get(), students - booked.get() - failed.get(), failed.get(),
+                    smtpSink.getReceived());
+            recorder.report(System.out, elapsed);
+        }
+    }
+
+    private static ConfigurableApplicationContext start(final SmtpSink smtpSink, final String database) {
+
+        //command line arguments take precedence over application-h2.yml
+        return new SpringApplicationBuilder(MentoringApplication.class)
+                .profiles("h2")
+                .run("--server.port=0",
+                        "--spring.datasource.url=" + database,
+                        "--spring.jpa.show-sql=false",
+                        "--spring.mail.host=localhost",
+                        "--spring.mail.port=" + smtpSink.getPort(),
+                        "--spring.mail.username=",
+                        "--spring.mail.password=",
+                        "--spring.mail.properties.mail.smtp.auth=false",
+                        "--spring.mail.properties.mail.smtp.starttls.enable=false",
+                        "--mentoring.mail.outbox.poll-interval=100");
+    }
+
+    private static void createMentor(final ConfigurableApplicationContext context) {
+
+        final User mentor = new User();
+        mentor.setName("Load");
+        mentor.setSurname("Mentor");
+        mentor.setEmail(MENTOR_EMAIL);
+        mentor.setPassword(context.getBean(BoundedPasswordEncoder.class).encode(MENTOR_PASSWORD));
+        mentor.setConfirmPassword("");
+        mentor.setUserRole(UserRole.MENTOR);
+        mentor.setEnabled(true);
+        context.getBean(UserRepository.class).save(mentor);
+    }
+
+    //quarters of hour from tomorrow on, a day at a time
+    private static void createSlots(final HttpClient client,
+                                    final ObjectMapper mapper,
+                                    final String baseUri,
+                                    final int slots) throws Exception {
+
+        final HttpResponse<String> signIn = client.send(HttpRequest.newBuilder(URI.create(baseUri + "/api/users/sign-in"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(mapper.writeValueAsBytes(
+                                Map.of("email", MENTOR_EMAIL, "password", MENTOR_PASSWORD))))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        final String jwt = mapper.readTree(signIn.body()).get("jwt").asText();
+
+        for (int created = 0, day = 1; created < slots; created += SLOTS_PER_DAY, day++) {
+            final int daySlots = Math.min(SLOTS_PER_DAY, slots - created);
+            final Map<String, String> meeting = Map.of(
+                    "meetingDate", LocalDate.now().plusDays(day).toString(),
+                    "meetingStartTime", FIRST_SLOT.toString(),
+                    "meetingEndTime", FIRST_SLOT.plusMinutes(15L * daySlots).toString());
+
+            final HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUri + "/api/meetings"))
+                            .header("Content-Type", "application/json")
+                            .header("Authorization", "Bearer " + jwt)
+                            .POST(HttpRequest.BodyPublishers.ofByteArray(mapper.writeValueAsBytes(meeting)))
+                            .build(),
+                    HttpResponse.BodyHandlers.ofString());
+
+            if (response.statusCode() != 201)
+                throw new IllegalStateException("Slots of day " + day + " not created: " + response.body());
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.javasolution.app.mentoring.loadtest;
+
+import javax.mail.Address;
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.internet.MimeMessage;
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//accepts every email the application sends and keeps the last content for each recipient,
+//the controller tests use it too, as a stand-in for the mail server
+public class SmtpSink implements Closeable {
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections = Executors.newCachedThreadPool();
+    private final Session session = Session.getInstance(new Properties());
+    private final ConcurrentMap<String, CompletableFuture<String>> contents = new ConcurrentHashMap<>();
+    private final AtomicInteger received = new AtomicInteger();
+    private final List<MimeMessage> messages = new CopyOnWriteArrayList<>();
+    private volatile boolean rejecting;
+    private volatile long replyDelayMillis;
+
+    public SmtpSink() throws IOException {
+        serverSocket = new ServerSocket(0);
+        connections.execute(this::accept);
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    int getReceived() {
+        return received.get();
+    }
+
+    public List<MimeMessage> getMessages() {
+        return List.copyOf(messages);
+    }
+
+    //a rejected email fails with a permanent error, as a server refusing the message
+    public void setRejecting(final boolean rejecting) {
+        this.rejecting = rejecting;
+    }
+
+    //the email is answered only after the delay, a client with a shorter timeout gives up
+    public void setReplyDelayMillis(final long replyDelayMillis) {
+        this.replyDelayMillis = replyDelayMillis;
+    }
+
+    public void reset() {
+        messages.clear();
+        rejecting = false;
+        replyDelayMillis = 0;
+    }
+
+    //content of the next email to the recipient, the application sends them from the outbox
+    String awaitContent(final String recipient, final long timeoutMillis) throws Exception {
+        try {
+            return future(recipient).get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } finally {
+            contents.remove(recipient);
+        }
+    }
+
+    private CompletableFuture<String> future(final String recipient) {
+        return contents.computeIfAbsent(recipient.toLowerCase(), key -> new CompletableFuture<>());
+    }
+
+    private void accept() {
+        try {
+            while (!serverSocket.isClosed()) {
+                final Socket socket = serverSocket.accept();
+                connections.execute(() -> handle(socket));
+            }
+        } catch (final SocketException ex) {
+            //closed
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private void handle(final Socket socket) {
+
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)) {
+
+            reply(out, "220 smtp sink");
+
+            String line;
+            while ((line = in.readLine()) != null) {
+                final String command = line.length() < 4 ? line.toUpperCase() : line.substring(0, 4).toUpperCase();
+
+                switch (command) {
+                    case "DATA":
+                        reply(out, "354 end data with <CR><LF>.<CR><LF>");
+                        final String data = readData(in);
+                        if (rejecting) {
+                            reply(out, "554 transaction failed");
+                            break;
+                        }
+                        if (replyDelayMillis > 0) {
+                            Thread.sleep(replyDelayMillis);
+                            reply(out, "250 OK");
+                            break;
+                        }
+                        store(data);
+                        reply(out, "250 OK");
+                        break;
+                    case "QUIT":
+                        reply(out, "221 bye");
+                        return;
+                    default:
+                        //EHLO, HELO, MAIL, RCPT, RSET, NOOP
+                        reply(out, "250 OK");
+                }
+            }
+        } catch (final IOException | MessagingException ex) {
+            //the connection is dropped, the application retries from the outbox
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String readData(final BufferedReader in) throws IOException {
+
+        final StringBuilder data = new StringBuilder();
+        String line;
+        while ((line = in.readLine()) != null && !line.equals(".")) {
+            //dot stuffing
+            data.append(line.startsWith("..") ? line.substring(1) : line).append("\r\n");
+        }
+        return data.toString();
+    }
+
+    private void store(final String data) throws IOException, MessagingException {
+
+        final MimeMessage message = new MimeMessage(session, new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)));
+        final String content = String.valueOf(message.getContent());
+        received.incrementAndGet();
+        messages.add(message);
+
+        for (Address recipient : message.getAllRecipients())
+            future(recipient.toString()).complete(content);
+    }
+
+    private static void reply(final Writer out, final String line) throws IOException {
+        out.write(line + "\r\n");
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        connections.shutdownNow();
+    }
+}
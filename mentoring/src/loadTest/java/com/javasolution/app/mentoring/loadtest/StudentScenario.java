@@ -0,0 +1,123 @@
+package com.javasolution.app.mentoring.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+//sign-up -> confirm -> sign-in -> list free slots -> book -> cancel, as one student does it
+class StudentScenario {
+
+    private static final Pattern TOKEN = Pattern.compile("token=([\\w-]+)");
+    private static final String PASSWORD = "student123";
+    private static final int BOOKING_ATTEMPTS = 3;
+    private static final long MAIL_TIMEOUT_MILLIS = 30_000;
+
+    private final String baseUri;
+    private final HttpClient client;
+    private final ObjectMapper mapper;
+    private final LatencyRecorder recorder;
+    private final SmtpSink smtpSink;
+    private final boolean cancel;
+
+    StudentScenario(final String baseUri,
+                    final HttpClient client,
+                    final ObjectMapper mapper,
+                    final LatencyRecorder recorder,
+                    final SmtpSink smtpSink,
+                    final boolean cancel) {
+        this.baseUri = baseUri;
+        this.client = client;
+        this.mapper = mapper;
+        this.recorder = recorder;
+        this.smtpSink = smtpSink;
+        this.cancel = cancel;
+    }
+
+    //false when the student could not book any slot
+    boolean run(final int student) throws Exception {
+
+        final String email = "student" + student + "@loadtest.local";
+
+        expect(201, send("POST /api/users/sign-up", post("/api/users/sign-up", null, Map.of(
+                "name", "Student",
+                "surname", String.valueOf(student),
+                "email", email,
+                "password", PASSWORD,
+                "confirmPassword", PASSWORD))));
+
+        final Matcher token = TOKEN.matcher(smtpSink.awaitContent(email, MAIL_TIMEOUT_MILLIS));
+        if (!token.find())
+            throw new IllegalStateException("No confirmation token in the email to " + email);
+
+        expect(200, send("GET /api/users/sign-up/confirm",
+                request("/api/users/sign-up/confirm?token=" + token.group(1), null).GET().build()));
+
+        final HttpResponse<String> signIn = expect(200, send("POST /api/users/sign-in",
+                post("/api/users/sign-in", null, Map.of("email", email, "password", PASSWORD))));
+        final String jwt = mapper.readTree(signIn.body()).get("jwt").asText();
+
+        final HttpResponse<String> freeSlots = expect(200, send("GET /api/meetings/notBooked",
+                request("/api/meetings/notBooked", jwt).GET().build()));
+        final JsonNode meetings = mapper.readTree(freeSlots.body());
+
+        //students race for the same first page of slots, a lost race is retried with another slot
+        for (int attempt = 0; attempt < BOOKING_ATTEMPTS && meetings.size() > 0; attempt++) {
+            final long meetingId = meetings.get(ThreadLocalRandom.current().nextInt(meetings.size())).get("id").asLong();
+
+            final HttpResponse<String> booking = send("POST /api/meetings/{meetingId}/bookings",
+                    post("/api/meetings/" + meetingId + "/bookings", jwt, Map.of()));
+            if (booking.statusCode() != 200) continue;
+
+            if (cancel) {
+                final long bookingId = mapper.readTree(booking.body()).get("id").asLong();
+                expect(200, send("DELETE /api/bookings/{bookingId}",
+                        request("/api/bookings/" + bookingId, jwt).DELETE().build()));
+            }
+            return true;
+        }
+
+        return false;
+    }
+
+    private HttpRequest.Builder request(final String path, final String jwt) {
+        final HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUri + path));
+        if (jwt != null) builder.header("Authorization", "Bearer " + jwt);
+        return builder;
+    }
+
+    private HttpRequest post(final String path, final String jwt, final Map<String, String> body) throws IOException {
+        return request(path, jwt)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(mapper.writeValueAsBytes(body)))
+                .build();
+    }
+
+    private HttpResponse<String> send(final String endpoint, final HttpRequest request) throws IOException, InterruptedException {
+
+        final long start = System.nanoTime();
+        try {
+            final HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            recorder.record(endpoint, response.statusCode(), System.nanoTime() - start);
+            return response;
+        } catch (final IOException ex) {
+            //status 0 in the report
+            recorder.record(endpoint, 0, System.nanoTime() - start);
+            throw ex;
+        }
+    }
+
+    private static HttpResponse<String> expect(final int status, final HttpResponse<String> response) {
+        if (response.statusCode() != status)
+            throw new IllegalStateException(response.request().uri() + " returned " + response.statusCode());
+        return response;
+    }
+}
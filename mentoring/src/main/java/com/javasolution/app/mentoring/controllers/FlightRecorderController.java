@@ -0,0 +1,51 @@
+package com.javasolution.app.mentoring.controllers;
+
+import com.javasolution.app.mentoring.responses.RecordingResponse;
+import com.javasolution.app.mentoring.services.FlightRecorderService;
+import io.swagger.annotations.ApiImplicitParam;
+import io.swagger.annotations.ApiImplicitParams;
+import io.swagger.annotations.ApiOperation;
+import jdk.jfr.Recording;
+import lombok.AllArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+
+@RestController
+@AllArgsConstructor
+@RequestMapping("/api/recordings")
+public class FlightRecorderController {
+
+    private final FlightRecorderService flightRecorderService;
+
+    @ApiImplicitParams({@ApiImplicitParam(name = "authorization", value = "Bearer + Json Web Token", paramType = "header")})
+    @ApiOperation(value = "The Start Recording Web Service Endpoint")
+    @PostMapping("/start")
+    public ResponseEntity<?> startRecording(@RequestParam(defaultValue = "default") final String settings) {
+
+        final String recording = flightRecorderService.start(settings);
+
+        return new ResponseEntity<>(new RecordingResponse("Recording: '" + recording + "' was started"), HttpStatus.OK);
+    }
+
+    @ApiImplicitParams({@ApiImplicitParam(name = "authorization", value = "Bearer + Json Web Token", paramType = "header")})
+    @ApiOperation(value = "The Stop Recording Web Service Endpoint")
+    @PostMapping("/stop")
+    public ResponseEntity<StreamingResponseBody> stopRecording() {
+
+        final Recording recording = flightRecorderService.stop();
+
+        final HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+        headers.setContentDisposition(ContentDisposition.builder("attachment").filename(recording.getName() + ".jfr").build());
+
+        final StreamingResponseBody data = outputStream -> flightRecorderService.write(recording, outputStream);
+
+        return new ResponseEntity<>(data, headers, HttpStatus.OK);
+    }
+}
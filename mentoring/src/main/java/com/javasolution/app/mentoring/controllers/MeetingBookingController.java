@@ -1,18 +1,28 @@
 package com.javasolution.app.mentoring.controllers;
 
 import com.javasolution.app.mentoring.entities.MeetingBooking;
+import com.javasolution.app.mentoring.entities.User;
+import com.javasolution.app.mentoring.projections.MeetingBookingView;
 import com.javasolution.app.mentoring.responses.CancelBookingResponse;
+import com.javasolution.app.mentoring.services.ExportService;
 import com.javasolution.app.mentoring.services.MeetingBookingService;
+import com.javasolution.app.mentoring.services.ResourceVersions;
 import io.swagger.annotations.ApiImplicitParam;
 import io.swagger.annotations.ApiImplicitParams;
 import io.swagger.annotations.ApiOperation;
 import lombok.AllArgsConstructor;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import springfox.documentation.annotations.ApiIgnore;
 
-import java.security.Principal;
+import java.util.List;
 
 
 @RestController
@@ -21,13 +31,16 @@ import java.security.Principal;
 public class MeetingBookingController {
 
     private final MeetingBookingService meetingBookingService;
+    private final ExportService exportService;
+    private final ResourceVersions resourceVersions;
 
     @ApiImplicitParams({@ApiImplicitParam(name = "authorization", value = "Bearer + Json Web Token", paramType = "header")})
     @ApiOperation(value = "The Booking Meeting Web Service Endpoint")
     @PostMapping("/meetings/{meetingId}/bookings")
-    public ResponseEntity<?> bookingMeeting(@PathVariable final String meetingId, final Principal principal) {
+    public ResponseEntity<?> bookingMeeting(@PathVariable final String meetingId,
+                                            @ApiIgnore @AuthenticationPrincipal final User user) {
 
-        final MeetingBooking meetingBooking = meetingBookingService.bookingMeeting(meetingId, principal);
+        final MeetingBooking meetingBooking = meetingBookingService.bookingMeeting(meetingId, user);
 
         return new ResponseEntity<>(meetingBooking, HttpStatus.OK);
     }
@@ -35,9 +48,10 @@ public class MeetingBookingController {
     @ApiImplicitParams({@ApiImplicitParam(name = "authorization", value = "Bearer + Json Web Token", paramType = "header")})
     @ApiOperation(value = "The Delete Booking Web Service Endpoint")
     @DeleteMapping("/bookings/{bookingId}")
-    public ResponseEntity<?> cancelBooking(@PathVariable final String bookingId, final Principal principal) {
+    public ResponseEntity<?> cancelBooking(@PathVariable final String bookingId,
+                                           @ApiIgnore @AuthenticationPrincipal final User user) {
 
-        meetingBookingService.cancelBooking(bookingId, principal);
+        meetingBookingService.cancelBooking(bookingId, user);
 
         return new ResponseEntity<>(new CancelBookingResponse("Meeting booking with ID: '" + bookingId + "' was deleted"),
                 HttpStatus.OK);
@@ -46,17 +60,37 @@ public class MeetingBookingController {
     @ApiImplicitParams({@ApiImplicitParam(name = "authorization", value = "Bearer + Json Web Token", paramType = "header")})
     @ApiOperation(value = "The Get All Bookings Web Service Endpoint")
     @GetMapping("/bookings")
-    public ResponseEntity<?> getAllBookings() {
+    public ResponseEntity<?> getAllBookings(final WebRequest webRequest) {
 
-        final Iterable<MeetingBooking> meetingsBookings = meetingBookingService.getAllBookings();
+        if (webRequest.checkNotModified(resourceVersions.bookingsTag())) return null;
+
+        final List<MeetingBookingView> meetingsBookings = meetingBookingService.getAllBookings();
 
         return new ResponseEntity<>(meetingsBookings, HttpStatus.OK);
     }
 
+    @ApiImplicitParams({@ApiImplicitParam(name = "authorization", value = "Bearer + Json Web Token", paramType = "header")})
+    @ApiOperation(value = "The Export Bookings Web Service Endpoint")
+    @GetMapping("/bookings/export")
+    public ResponseEntity<StreamingResponseBody> exportBookings() {
+
+        final HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType(ExportService.NDJSON));
+
+        final StreamingResponseBody bookings = exportService.limit(exportService::exportBookings);
+
+        return new ResponseEntity<>(bookings, headers, HttpStatus.OK);
+    }
+
     @ApiImplicitParams({@ApiImplicitParam(name = "authorization", value = "Bearer + Json Web Token", paramType = "header")})
     @ApiOperation(value = "The Get Booking Web Service Endpoint")
     @GetMapping("/bookings/{bookingId}")
-    public ResponseEntity<?> getBooking(@PathVariable final String bookingId) {
+    public ResponseEntity<?> getBooking(@PathVariable final String bookingId,
+                                        final WebRequest webRequest) {
+
+        //an invalid id is rejected before a tag is issued for it
+        final long id = MeetingBookingService.parseBookingId(bookingId);
+        if (webRequest.checkNotModified(resourceVersions.bookingTag(id))) return null;
 
         final MeetingBooking meetingBooking = meetingBookingService.getBooking(bookingId);
 
@@ -67,9 +101,14 @@ public class MeetingBookingController {
     @ApiImplicitParams({@ApiImplicitParam(name = "authorization", value = "Bearer + Json Web Token", paramType = "header")})
     @ApiOperation(value = "The Get My Booking Web Service Endpoint")
     @GetMapping("/bookings/me/{bookingId}")
-    public ResponseEntity<?> getMyBooking(@PathVariable final String bookingId, final Principal principal) {
+    public ResponseEntity<?> getMyBooking(@PathVariable final String bookingId,
+                                          @ApiIgnore @AuthenticationPrincipal final User user,
+                                          final WebRequest webRequest) {
 
-        final MeetingBooking meetingBooking = meetingBookingService.getMyBooking(bookingId, principal);
+        final long id = MeetingBookingService.parseBookingId(bookingId);
+        if (webRequest.checkNotModified(resourceVersions.bookingTag(user.getId(), id))) return null;
+
+        final MeetingBooking meetingBooking = meetingBookingService.getMyBooking(bookingId, user);
 
         return new ResponseEntity<>(meetingBooking, HttpStatus.OK);
     }
@@ -77,9 +116,12 @@ public class MeetingBookingController {
     @ApiImplicitParams({@ApiImplicitParam(name = "authorization", value = "Bearer + Json Web Token", paramType = "header")})
     @ApiOperation(value = "The Get All My Bookings Web Service Endpoint")
     @GetMapping("/bookings/me")
-    public ResponseEntity<?> getAllMyBookings(final Principal principal) {
+    public ResponseEntity<?> getAllMyBookings(@ApiIgnore @AuthenticationPrincipal final User user,
+                                              final WebRequest webRequest) {
+
+        if (webRequest.checkNotModified(resourceVersions.bookingsTag(user.getId()))) return null;
 
-        final Iterable<MeetingBooking> meetingsBookings = meetingBookingService.getAllMyBookings(principal);
+        final List<MeetingBookingView> meetingsBookings = meetingBookingService.getAllMyBookings(user);
 
         return new ResponseEntity<>(meetingsBookings, HttpStatus.OK);
     }
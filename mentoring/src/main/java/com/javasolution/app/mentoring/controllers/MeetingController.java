@@ -1,19 +1,39 @@
 package com.javasolution.app.mentoring.controllers;
 
 import com.javasolution.app.mentoring.entities.Meeting;
+import com.javasolution.app.mentoring.entities.User;
+import com.javasolution.app.mentoring.projections.MeetingView;
+import com.javasolution.app.mentoring.responses.CalendarConsistencyResponse;
+import com.javasolution.app.mentoring.responses.CalendarDayResponse;
+import com.javasolution.app.mentoring.responses.CursorPage;
 import com.javasolution.app.mentoring.responses.DeleteMeetingResponse;
+import com.javasolution.app.mentoring.responses.MeetingChangesResponse;
+import com.javasolution.app.mentoring.services.ExportService;
 import com.javasolution.app.mentoring.services.MapValidationErrorService;
+import com.javasolution.app.mentoring.services.MeetingChangeService;
+import com.javasolution.app.mentoring.services.MeetingEventPublisher;
 import com.javasolution.app.mentoring.services.MeetingService;
+import com.javasolution.app.mentoring.services.ResourceVersions;
 import com.javasolution.app.mentoring.validators.MeetingValidator;
 import io.swagger.annotations.ApiImplicitParam;
 import io.swagger.annotations.ApiImplicitParams;
 import io.swagger.annotations.ApiOperation;
 import lombok.AllArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import springfox.documentation.annotations.ApiIgnore;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
 
@@ -22,21 +42,31 @@ import java.util.List;
 @RequestMapping("/api/meetings")
 public class MeetingController {
 
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final String DEFAULT_PAGE_SIZE = "100";
+    private static final String DEFAULT_NEXT_MEETINGS = "10";
+
     private final MeetingService meetingService;
     private final MeetingValidator meetingValidator;
     private final MapValidationErrorService mapValidationErrorService;
+    private final ExportService exportService;
+    private final MeetingChangeService meetingChangeService;
+    private final MeetingEventPublisher meetingEventPublisher;
+    private final ResourceVersions resourceVersions;
 
     @ApiImplicitParams({@ApiImplicitParam(name = "authorization", value = "Bearer + Json Web Token", paramType = "header")})
     @ApiOperation(value = "The Add Meeting Web Service Endpoint")
     @PostMapping
-    public ResponseEntity<?> addMeeting(@RequestBody final Meeting meeting, final BindingResult result) {
+    public ResponseEntity<?> addMeeting(@RequestBody final Meeting meeting,
+                                        final BindingResult result,
+                                        @ApiIgnore @AuthenticationPrincipal final User mentor) {
 
         meetingValidator.validate(meeting, result);
 
         final ResponseEntity<?> errorMap = mapValidationErrorService.mapValidationService(result);
         if (errorMap != null) return errorMap;
 
-        final List<Meeting> meetings = meetingService.addMeeting(meeting);
+        final List<Meeting> meetings = meetingService.addMeeting(meeting, mentor);
 
         return new ResponseEntity<>(meetings, HttpStatus.CREATED);
     }
@@ -44,9 +74,10 @@ public class MeetingController {
     @ApiImplicitParams({@ApiImplicitParam(name = "authorization", value = "Bearer + Json Web Token", paramType = "header")})
     @ApiOperation(value = "The Delete Meeting Web Service Endpoint")
     @DeleteMapping("/{meetingId}")
-    public ResponseEntity<?> deleteMeeting(@PathVariable final String meetingId) {
+    public ResponseEntity<?> deleteMeeting(@PathVariable final String meetingId,
+                                           @ApiIgnore @AuthenticationPrincipal final User mentor) {
 
-        meetingService.deleteMeeting(meetingId);
+        meetingService.deleteMeeting(meetingId, mentor);
 
         return new ResponseEntity<>(new DeleteMeetingResponse("Meeting with ID: '" + meetingId + "' was deleted"),
                 HttpStatus.OK);
@@ -55,14 +86,17 @@ public class MeetingController {
     @ApiImplicitParams({@ApiImplicitParam(name = "authorization", value = "Bearer + Json Web Token", paramType = "header")})
     @ApiOperation(value = "The Update Meeting Web Service Endpoint")
     @PutMapping("/{meetingId}")
-    public ResponseEntity<?> updateMeeting(@PathVariable final String meetingId, @RequestBody final Meeting meeting, final BindingResult result) {
+    public ResponseEntity<?> updateMeeting(@PathVariable final String meetingId,
+                                           @RequestBody final Meeting meeting,
+                                           final BindingResult result,
+                                           @ApiIgnore @AuthenticationPrincipal final User mentor) {
 
         meetingValidator.validate(meeting, result);
 
         final ResponseEntity<?> errorMap = mapValidationErrorService.mapValidationService(result);
         if (errorMap != null) return errorMap;
 
-        final Meeting updatedMeeting = meetingService.updateMeeting(meetingId, meeting);
+        final Meeting updatedMeeting = meetingService.updateMeeting(meetingId, meeting, mentor);
 
         return new ResponseEntity<>(updatedMeeting, HttpStatus.OK);
     }
@@ -70,31 +104,139 @@ public class MeetingController {
     @ApiImplicitParams({@ApiImplicitParam(name = "authorization", value = "Bearer + Json Web Token", paramType = "header")})
     @ApiOperation(value = "The Get All Meetings Web Service Endpoint")
     @GetMapping
-    public ResponseEntity<?> getAllMeetings() {
+    public ResponseEntity<?> getAllMeetings(@RequestParam(required = false) final String cursor,
+                                            @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) final int limit,
+                                            final WebRequest webRequest) {
+
+        if (webRequest.checkNotModified(resourceVersions.meetingsTag())) return null;
 
-        final Iterable<Meeting> meetings = meetingService.getAllMeetings();
+        final CursorPage<MeetingView> meetings = meetingService.getAllMeetings(cursor, limit);
 
-        return new ResponseEntity<>(meetings, HttpStatus.OK);
+        return pageResponse(meetings);
     }
 
     @ApiImplicitParams({@ApiImplicitParam(name = "authorization", value = "Bearer + Json Web Token", paramType = "header")})
     @ApiOperation(value = "The Get All Not Booked Meetings Web Service Endpoint")
     @GetMapping("/notBooked")
-    public ResponseEntity<?> getAllNotBookedMeetings() {
+    public ResponseEntity<?> getAllNotBookedMeetings(@RequestParam(required = false) final String cursor,
+                                                     @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) final int limit,
+                                                     final WebRequest webRequest) {
+
+        if (webRequest.checkNotModified(resourceVersions.meetingsTag())) return null;
+
+        final CursorPage<MeetingView> availableMeetings = meetingService.getAllNotBookedMeetings(cursor, limit);
+
+        return pageResponse(availableMeetings);
+    }
+
+
+    @ApiImplicitParams({@ApiImplicitParam(name = "authorization", value = "Bearer + Json Web Token", paramType = "header")})
+    @ApiOperation(value = "The Get Meeting Changes Web Service Endpoint")
+    @GetMapping("/changes")
+    public ResponseEntity<?> getMeetingChanges(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) final LocalDateTime since) {
+
+        final MeetingChangesResponse changes = meetingChangeService.getChanges(since);
+
+        return new ResponseEntity<>(changes, HttpStatus.OK);
+    }
+
+    @ApiImplicitParams({@ApiImplicitParam(name = "authorization", value = "Bearer + Json Web Token", paramType = "header")})
+    @ApiOperation(value = "The Stream Meeting Changes Web Service Endpoint")
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamMeetingChanges() {
+
+        final SseEmitter emitter = meetingEventPublisher.subscribe();
+
+        return new ResponseEntity<>(emitter, HttpStatus.OK);
+    }
+
+    @ApiImplicitParams({@ApiImplicitParam(name = "authorization", value = "Bearer + Json Web Token", paramType = "header")})
+    @ApiOperation(value = "The Get Available Meetings Web Service Endpoint")
+    @GetMapping("/available")
+    public ResponseEntity<?> getAvailableMeetings(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) final LocalDate from,
+                                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) final LocalDate to,
+                                                  @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) final int limit) {
+
+        final List<MeetingView> availableMeetings = meetingService.getAvailableMeetings(from, to, limit);
+
+        return new ResponseEntity<>(availableMeetings, HttpStatus.OK);
+    }
+
+    @ApiImplicitParams({@ApiImplicitParam(name = "authorization", value = "Bearer + Json Web Token", paramType = "header")})
+    @ApiOperation(value = "The Get Next Available Meetings Web Service Endpoint")
+    @GetMapping("/available/next")
+    public ResponseEntity<?> getNextAvailableMeetings(@RequestParam(defaultValue = DEFAULT_NEXT_MEETINGS) final int limit) {
 
-        final Iterable<Meeting> availableMeetings = meetingService.getAllNotBookedMeetings();
+        final List<MeetingView> availableMeetings = meetingService.getNextAvailableMeetings(limit);
 
         return new ResponseEntity<>(availableMeetings, HttpStatus.OK);
     }
 
+    @ApiImplicitParams({@ApiImplicitParam(name = "authorization", value = "Bearer + Json Web Token", paramType = "header")})
+    @ApiOperation(value = "The Get Calendar Web Service Endpoint")
+    @GetMapping("/calendar")
+    public ResponseEntity<?> getCalendar(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) final LocalDate from,
+                                         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) final LocalDate to) {
+
+        final List<CalendarDayResponse> calendar = meetingService.getCalendar(from, to);
+
+        return new ResponseEntity<>(calendar, HttpStatus.OK);
+    }
+
+    @ApiImplicitParams({@ApiImplicitParam(name = "authorization", value = "Bearer + Json Web Token", paramType = "header")})
+    @ApiOperation(value = "The Verify Calendar Web Service Endpoint")
+    @GetMapping("/calendar/consistency")
+    public ResponseEntity<?> verifyCalendar() {
+
+        final CalendarConsistencyResponse consistency = meetingService.verifyCalendar();
+
+        return new ResponseEntity<>(consistency, HttpStatus.OK);
+    }
+
+    @ApiImplicitParams({@ApiImplicitParam(name = "authorization", value = "Bearer + Json Web Token", paramType = "header")})
+    @ApiOperation(value = "The Repair Calendar Web Service Endpoint")
+    @PostMapping("/calendar/consistency")
+    public ResponseEntity<?> repairCalendar() {
+
+        final CalendarConsistencyResponse consistency = meetingService.repairCalendar();
+
+        return new ResponseEntity<>(consistency, HttpStatus.OK);
+    }
+
+    @ApiImplicitParams({@ApiImplicitParam(name = "authorization", value = "Bearer + Json Web Token", paramType = "header")})
+    @ApiOperation(value = "The Export Meetings Web Service Endpoint")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportMeetings() {
+
+        final HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType(ExportService.NDJSON));
+
+        final StreamingResponseBody meetings = exportService.limit(exportService::exportMeetings);
+
+        return new ResponseEntity<>(meetings, headers, HttpStatus.OK);
+    }
 
     @ApiImplicitParams({@ApiImplicitParam(name = "authorization", value = "Bearer + Json Web Token", paramType = "header")})
     @ApiOperation(value = "The Get Meeting Web Service Endpoint")
     @GetMapping("/{meetingId}")
-    public ResponseEntity<?> getMeeting(@PathVariable final String meetingId) {
+    public ResponseEntity<?> getMeeting(@PathVariable final String meetingId,
+                                        final WebRequest webRequest) {
+
+        //an invalid id is rejected before a tag is issued for it
+        final long id = MeetingService.parseMeetingId(meetingId);
+        if (webRequest.checkNotModified(resourceVersions.meetingTag(id))) return null;
 
         final Meeting meeting = meetingService.getMeeting(meetingId);
 
         return new ResponseEntity<>(meeting, HttpStatus.OK);
     }
+
+    private ResponseEntity<?> pageResponse(final CursorPage<?> page) {
+
+        final HttpHeaders headers = new HttpHeaders();
+        if (page.getNextCursor() != null)
+            headers.set(NEXT_CURSOR_HEADER, page.getNextCursor());
+
+        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+    }
 }
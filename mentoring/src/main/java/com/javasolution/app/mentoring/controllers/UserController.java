@@ -2,10 +2,12 @@ package com.javasolution.app.mentoring.controllers;
 
 import com.javasolution.app.mentoring.entities.ConfirmationToken;
 import com.javasolution.app.mentoring.entities.User;
+import com.javasolution.app.mentoring.projections.UserView;
 import com.javasolution.app.mentoring.requests.LoginRequest;
 import com.javasolution.app.mentoring.requests.UpdateUserRequest;
 import com.javasolution.app.mentoring.responses.DeleteAccountResponse;
 import com.javasolution.app.mentoring.responses.LoginResponse;
+import com.javasolution.app.mentoring.responses.MentorResponse;
 import com.javasolution.app.mentoring.security.JwtUtil;
 import com.javasolution.app.mentoring.services.ConfirmationTokenService;
 import com.javasolution.app.mentoring.services.MapValidationErrorService;
@@ -19,12 +21,14 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import springfox.documentation.annotations.ApiIgnore;
 
 import javax.validation.Valid;
-import java.security.Principal;
+import java.util.List;
 import java.util.Optional;
 
 @RestController
@@ -44,14 +48,14 @@ public class UserController {
     @PutMapping("/me")
     public ResponseEntity<?> updateMe(@Valid @RequestBody final UpdateUserRequest updateUserRequest,
                                       final BindingResult result,
-                                      final Principal principal) {
+                                      @ApiIgnore @AuthenticationPrincipal final User user) {
 
         final ResponseEntity<?> errorMap = mapValidationErrorService.mapValidationService(result);
         if (errorMap != null) return errorMap;
 
-        final User user = userService.updateMe(updateUserRequest, principal);
+        final User updatedUser = userService.updateMe(updateUserRequest, user);
 
-        return new ResponseEntity<>(user, HttpStatus.OK);
+        return new ResponseEntity<>(updatedUser, HttpStatus.OK);
     }
 
     @ApiImplicitParams({@ApiImplicitParam(name = "authorization", value = "Bearer + Json Web Token", paramType = "header")})
@@ -67,9 +71,9 @@ public class UserController {
     @ApiImplicitParams({@ApiImplicitParam(name = "authorization", value = "Bearer + Json Web Token", paramType = "header")})
     @ApiOperation(value = "The Delete Account Web Service Endpoint")
     @DeleteMapping("/me")
-    public ResponseEntity<?> deleteAccount(final Principal principal) {
+    public ResponseEntity<?> deleteAccount(@ApiIgnore @AuthenticationPrincipal final User user) {
 
-        userService.deleteAccount(principal);
+        userService.deleteAccount(user);
 
         return new ResponseEntity<>(new DeleteAccountResponse("Account deleted successfully"), HttpStatus.OK);
     }
@@ -77,11 +81,9 @@ public class UserController {
     @ApiImplicitParams({@ApiImplicitParam(name = "authorization", value = "Bearer + Json Web Token", paramType = "header")})
     @ApiOperation(value = "The Get Me Web Service Endpoint")
     @GetMapping("/me")
-    public ResponseEntity<?> getMe(final Principal principal) {
-
-        final User user = userService.getMe(principal);
+    public ResponseEntity<?> getMe(@ApiIgnore @AuthenticationPrincipal final User user) {
 
-        return new ResponseEntity<>(user, HttpStatus.OK);
+        return new ResponseEntity<>(userService.getMe(user), HttpStatus.OK);
     }
 
     @ApiOperation(value = "The Sign-in User Web Service Endpoint")
@@ -131,11 +133,21 @@ public class UserController {
     @GetMapping
     public ResponseEntity<?> getAllUsers() {
 
-        final Iterable<User> users = userService.getAllUsers();
+        final List<UserView> users = userService.getAllUsers();
 
         return new ResponseEntity<>(users, HttpStatus.OK);
     }
 
+    @ApiImplicitParams({@ApiImplicitParam(name = "authorization", value = "Bearer + Json Web Token", paramType = "header")})
+    @ApiOperation(value = "The Get Mentors Web Service Endpoint")
+    @GetMapping("/mentors")
+    public ResponseEntity<?> getMentors() {
+
+        final List<MentorResponse> mentors = userService.getMentors();
+
+        return new ResponseEntity<>(mentors, HttpStatus.OK);
+    }
+
     @ApiImplicitParams({@ApiImplicitParam(name = "authorization", value = "Bearer + Json Web Token", paramType = "header")})
     @ApiOperation(value = "The Get User Web Service Endpoint")
     @GetMapping("/{userId}")
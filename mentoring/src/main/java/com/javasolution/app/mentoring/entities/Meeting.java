@@ -1,16 +1,31 @@
 package com.javasolution.app.mentoring.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 
+//the meeting of a serialized booking is an initialized proxy
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 @Entity(name = "Meetings")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@EntityListeners(MeetingCalendarListener.class)
+@Table(indexes = {
+        @Index(name = "idx_meetings_date_start_time", columnList = "meetingDate, meetingStartTime, id"),
+        @Index(name = "idx_meetings_booked_date_start_time", columnList = "booked, meetingDate, meetingStartTime, id"),
+        @Index(name = "idx_meetings_mentor_date_start_time", columnList = "mentor_id, meetingDate, meetingStartTime"),
+        @Index(name = "idx_meetings_update_at", columnList = "updateAt, id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -18,7 +33,8 @@ import java.time.LocalTime;
 public class Meeting {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "meetings_sequence")
+    @SequenceGenerator(name = "meetings_sequence", sequenceName = "meetings_sequence", allocationSize = 50)
     private Long id;
 
     private LocalDate meetingDate;
@@ -33,13 +49,15 @@ public class Meeting {
 
     private Boolean booked;
 
-    @ManyToOne(targetEntity = User.class, fetch = FetchType.EAGER)
+    @ManyToOne(targetEntity = User.class, fetch = FetchType.LAZY)
     @JoinColumn(nullable = false, name = "mentor_id")
     private User mentor;
 
     @PrePersist
     protected void onCreate() {
         this.createAt = LocalDateTime.now();
+        //a new meeting is a change too
+        this.updateAt = this.createAt;
         this.booked = false;
     }
 
@@ -21,12 +21,12 @@ public class MeetingBooking {
 
     private LocalDateTime createAt;
 
-    @ManyToOne(targetEntity = User.class, fetch = FetchType.EAGER)
+    @ManyToOne(targetEntity = User.class, fetch = FetchType.LAZY)
     @JoinColumn(nullable = false, name = "student_id")
     private User student;
 
-    @OneToOne(targetEntity = Meeting.class, fetch = FetchType.EAGER)
-    @JoinColumn(nullable = false, name = "meeting_id")
+    @OneToOne(targetEntity = Meeting.class, fetch = FetchType.LAZY)
+    @JoinColumn(nullable = false, name = "meeting_id", unique = true)
     private Meeting meeting;
 
     @PrePersist
@@ -0,0 +1,33 @@
+package com.javasolution.app.mentoring.entities;
+
+import com.javasolution.app.mentoring.services.MeetingCalendar;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+//keeps the calendar in line with every meeting written through the entity manager
+public class MeetingCalendarListener {
+
+    @Autowired //must be autowired
+    private MeetingCalendar meetingCalendar;
+
+    @PostPersist
+    @PostUpdate
+    public void onSave(final Meeting meeting) {
+        meetingCalendar.putMeeting(meeting.getMentor().getId(),
+                meeting.getMeetingDate(),
+                meeting.getMeetingStartTime(),
+                meeting.getMeetingEndTime(),
+                Boolean.TRUE.equals(meeting.getBooked()));
+    }
+
+    @PostRemove
+    public void onRemove(final Meeting meeting) {
+        meetingCalendar.removeMeeting(meeting.getMentor().getId(),
+                meeting.getMeetingDate(),
+                meeting.getMeetingStartTime(),
+                meeting.getMeetingEndTime());
+    }
+}
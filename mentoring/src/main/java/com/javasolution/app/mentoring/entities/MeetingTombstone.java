@@ -0,0 +1,34 @@
+package com.javasolution.app.mentoring.entities;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+//marks a deleted meeting, so clients syncing changes can drop it
+@Entity(name = "MeetingTombstones")
+@Table(indexes = @Index(name = "idx_meeting_tombstones_deleted_at", columnList = "deletedAt"))
+@Getter
+@Setter
+@NoArgsConstructor
+public class MeetingTombstone {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long meetingId;
+
+    private LocalDateTime deletedAt;
+
+    public MeetingTombstone(final Long meetingId) {
+        this.meetingId = meetingId;
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        this.deletedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,52 @@
+package com.javasolution.app.mentoring.entities;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity(name = "OutboxEmails")
+@Table(indexes = {
+        @Index(name = "idx_outbox_emails_next_attempt_at", columnList = "nextAttemptAt"),
+        @Index(name = "idx_outbox_emails_claim_token", columnList = "claimToken")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class OutboxEmail {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String recipient;
+
+    private String subject;
+
+    @Lob
+    private String content;
+
+    private int attempts;
+
+    private LocalDateTime createAt;
+
+    //null when the email is not going to be sent anymore, the end of the lease while a dispatcher sends it
+    private LocalDateTime nextAttemptAt;
+
+    //dispatch run which holds the lease of the email
+    private String claimToken;
+
+    public OutboxEmail(final String recipient, final String subject, final String content) {
+        this.recipient = recipient;
+        this.subject = subject;
+        this.content = content;
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        this.createAt = LocalDateTime.now();
+        this.nextAttemptAt = this.createAt;
+    }
+}
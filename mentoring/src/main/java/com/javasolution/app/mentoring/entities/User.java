@@ -1,11 +1,15 @@
 package com.javasolution.app.mentoring.entities;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import lombok.*;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
 import javax.validation.constraints.Email;
 import javax.validation.constraints.NotBlank;
@@ -20,7 +24,12 @@ import java.util.Collections;
 @NoArgsConstructor
 @AllArgsConstructor
 @ToString
+//the mentor of a meeting and the student of a booking are serialized as initialized proxies,
+//their interceptor fields are not part of the json
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 @Entity(name = "Users")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class User implements UserDetails {
 
     @Id
@@ -0,0 +1,70 @@
+package com.javasolution.app.mentoring.events;
+
+import com.javasolution.app.mentoring.entities.Meeting;
+import com.javasolution.app.mentoring.projections.MeetingSlot;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+//published in-process once per change of slots, pushed to the subscribers after commit
+@Getter
+@AllArgsConstructor
+public class MeetingChangedEvent {
+
+    public enum Type {
+        ADDED, UPDATED, DELETED, BOOKED, CANCELLED
+    }
+
+    private final Type type;
+
+    //a day of new slots or the bookings of a deleted student are a single event
+    private final List<ChangedMeeting> meetings;
+
+    @Getter
+    @AllArgsConstructor
+    public static class ChangedMeeting {
+
+        private final Long meetingId;
+
+        private final Long mentorId;
+
+        private final LocalDate meetingDate;
+
+        private final LocalTime meetingStartTime;
+
+        private final LocalTime meetingEndTime;
+
+        private final boolean booked;
+    }
+
+    //bulk updates do not refresh loaded meetings, so the booked flag is given explicitly
+    public static MeetingChangedEvent of(final Type type, final Meeting meeting, final boolean booked) {
+        return of(type, List.of(meeting), booked);
+    }
+
+    public static MeetingChangedEvent of(final Type type, final List<Meeting> meetings, final boolean booked) {
+        return new MeetingChangedEvent(type, meetings.stream()
+                .map(meeting -> new ChangedMeeting(meeting.getId(),
+                        meeting.getMentor().getId(),
+                        meeting.getMeetingDate(),
+                        meeting.getMeetingStartTime(),
+                        meeting.getMeetingEndTime(),
+                        booked))
+                .collect(Collectors.toList()));
+    }
+
+    public static MeetingChangedEvent ofSlots(final Type type, final List<? extends MeetingSlot> slots, final boolean booked) {
+        return new MeetingChangedEvent(type, slots.stream()
+                .map(slot -> new ChangedMeeting(slot.getId(),
+                        slot.getMentorId(),
+                        slot.getMeetingDate(),
+                        slot.getMeetingStartTime(),
+                        slot.getMeetingEndTime(),
+                        booked))
+                .collect(Collectors.toList()));
+    }
+}
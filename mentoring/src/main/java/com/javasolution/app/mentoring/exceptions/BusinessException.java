@@ -0,0 +1,9 @@
+package com.javasolution.app.mentoring.exceptions;
+
+//expected failures of a request, they only carry a message for the response so no stack trace is filled in
+public abstract class BusinessException extends RuntimeException {
+
+    protected BusinessException(final String message) {
+        super(message, null, false, false);
+    }
+}
@@ -1,6 +1,8 @@
 package com.javasolution.app.mentoring.exceptions;
 
 import com.javasolution.app.mentoring.responses.*;
+import lombok.AllArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -12,48 +14,44 @@ import java.util.Collections;
 
 @ControllerAdvice
 //@RestController
+@AllArgsConstructor
 public class CustomResponseEntityExceptionHandler extends ResponseEntityExceptionHandler {
 
+    private final ErrorBodies errorBodies;
+
     @ExceptionHandler
     public final ResponseEntity<Object> handleUsernameAlreadyExists(final UsernameAlreadyExistsException ex, final WebRequest request) {
-        final UsernameAlreadyExistsResponse exceptionResponse = new UsernameAlreadyExistsResponse(ex.getMessage());
-        return new ResponseEntity(exceptionResponse, HttpStatus.BAD_REQUEST);
+        return errorBodies.badRequest(ex, UsernameAlreadyExistsResponse::new);
     }
 
     @ExceptionHandler
     public final ResponseEntity<Object> handleUnableSendEmail(final UnableSendEmailException ex, final WebRequest request) {
-        final UnableSendEmailResponse exceptionResponse = new UnableSendEmailResponse(ex.getMessage());
-        return new ResponseEntity(exceptionResponse, HttpStatus.BAD_REQUEST);
+        return errorBodies.badRequest(ex, UnableSendEmailResponse::new);
     }
 
     @ExceptionHandler
     public final ResponseEntity<Object> handleInvalidCast(final InvalidCastException ex, final WebRequest request) {
-        final InvalidCastResponse exceptionResponse = new InvalidCastResponse(ex.getMessage());
-        return new ResponseEntity(exceptionResponse, HttpStatus.BAD_REQUEST);
+        return errorBodies.badRequest(ex, InvalidCastResponse::new);
     }
 
     @ExceptionHandler
     public final ResponseEntity<Object> handleUserNotFound(final UserNotFoundException ex, final WebRequest request) {
-        final UserNotFoundResponse exceptionResponse = new UserNotFoundResponse(ex.getMessage());
-        return new ResponseEntity(exceptionResponse, HttpStatus.BAD_REQUEST);
+        return errorBodies.badRequest(ex, UserNotFoundResponse::new);
     }
 
     @ExceptionHandler
     public final ResponseEntity<Object> handleDeleteAccount(final DeleteAccountException ex, final WebRequest request) {
-        final DeleteAccountResponse exceptionResponse = new DeleteAccountResponse(ex.getMessage());
-        return new ResponseEntity(exceptionResponse, HttpStatus.BAD_REQUEST);
+        return errorBodies.badRequest(ex, DeleteAccountResponse::new);
     }
 
     @ExceptionHandler
     public final ResponseEntity<Object> handleMeetingBookingAlreadyExists(final MeetingBookingAlreadyExistsException ex, final WebRequest request) {
-        final MeetingBookingAlreadyExistsResponse exceptionResponse = new MeetingBookingAlreadyExistsResponse(ex.getMessage());
-        return new ResponseEntity(exceptionResponse, HttpStatus.BAD_REQUEST);
+        return errorBodies.badRequest(ex, MeetingBookingAlreadyExistsResponse::new);
     }
 
     @ExceptionHandler
     public final ResponseEntity<Object> handleMentorNotFound(final MentorNotFoundException ex, final WebRequest request) {
-        final MentorNotFoundResponse exceptionResponse = new MentorNotFoundResponse(ex.getMessage());
-        return new ResponseEntity(exceptionResponse, HttpStatus.BAD_REQUEST);
+        return errorBodies.badRequest(ex, MentorNotFoundResponse::new);
     }
 
     @ExceptionHandler
@@ -64,31 +62,45 @@ public class CustomResponseEntityExceptionHandler extends ResponseEntityExceptio
 
     @ExceptionHandler
     public final ResponseEntity<Object> handleMeetingNotFound(final MeetingNotFoundException ex, final WebRequest request) {
-        final MeetingNotFoundResponse exceptionResponse = new MeetingNotFoundResponse(ex.getMessage());
-        return new ResponseEntity(exceptionResponse, HttpStatus.BAD_REQUEST);
+        return errorBodies.badRequest(ex, MeetingNotFoundResponse::new);
     }
 
     @ExceptionHandler
     public final ResponseEntity<Object> handleMeetingBooked(final MeetingBookedException ex, final WebRequest request) {
-        final MeetingBookedResponse exceptionResponse = new MeetingBookedResponse(ex.getMessage());
-        return new ResponseEntity(exceptionResponse, HttpStatus.BAD_REQUEST);
+        return errorBodies.badRequest(ex, MeetingBookedResponse::new);
     }
 
     @ExceptionHandler
     public final ResponseEntity<Object> handleMeetingTime(final MeetingTimeException ex, final WebRequest request) {
-        final MeetingTimeResponse exceptionResponse = new MeetingTimeResponse(ex.getMessage());
-        return new ResponseEntity(exceptionResponse, HttpStatus.BAD_REQUEST);
+        return errorBodies.badRequest(ex, MeetingTimeResponse::new);
     }
 
     @ExceptionHandler
     public final ResponseEntity<Object> handleMeetingBookingNotFound(final MeetingBookingNotFoundException ex, final WebRequest request) {
-        final MeetingBookingNotFoundResponse exceptionResponse = new MeetingBookingNotFoundResponse(ex.getMessage());
-        return new ResponseEntity(exceptionResponse, HttpStatus.BAD_REQUEST);
+        return errorBodies.badRequest(ex, MeetingBookingNotFoundResponse::new);
     }
 
     @ExceptionHandler
     public final ResponseEntity<Object> handleNotOwner(final NotOwnerException ex, final WebRequest request) {
-        final NotOwnerResponse exceptionResponse = new NotOwnerResponse(ex.getMessage());
-        return new ResponseEntity(exceptionResponse, HttpStatus.BAD_REQUEST);
+        return errorBodies.badRequest(ex, NotOwnerResponse::new);
+    }
+
+    @ExceptionHandler
+    public final ResponseEntity<Object> handleRecordingState(final RecordingStateException ex, final WebRequest request) {
+        return errorBodies.badRequest(ex, RecordingStateResponse::new);
+    }
+
+    @ExceptionHandler
+    public final ResponseEntity<Object> handlePasswordHashingBusy(final PasswordHashingBusyException ex, final WebRequest request) {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()));
+        return errorBodies.response(ex, PasswordHashingBusyResponse::new, headers, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @ExceptionHandler
+    public final ResponseEntity<Object> handleExportBusy(final ExportBusyException ex, final WebRequest request) {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()));
+        return errorBodies.response(ex, ExportBusyResponse::new, headers, HttpStatus.SERVICE_UNAVAILABLE);
     }
 }
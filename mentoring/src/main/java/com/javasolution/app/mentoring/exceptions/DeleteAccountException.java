@@ -5,7 +5,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
 @ResponseStatus(HttpStatus.BAD_REQUEST)
-public class DeleteAccountException extends RuntimeException {
+public class DeleteAccountException extends BusinessException {
 
     public DeleteAccountException(final String message) {
         super(message);
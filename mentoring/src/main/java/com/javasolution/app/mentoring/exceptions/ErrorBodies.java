@@ -0,0 +1,67 @@
+package com.javasolution.app.mentoring.exceptions;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+//json bodies of the error responses encoded once per message, a storm of the same failure reuses the bytes
+@Component
+public class ErrorBodies {
+
+    private static final int MAX_CACHED_BODIES = 1_000;
+
+    private static final HttpHeaders JSON_HEADERS = jsonHeaders();
+
+    private final Cache<List<Object>, byte[]> bodies = Caffeine.newBuilder()
+            .maximumSize(MAX_CACHED_BODIES)
+            .build();
+
+    private final ObjectMapper objectMapper;
+
+    public ErrorBodies(final ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    private static HttpHeaders jsonHeaders() {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        return HttpHeaders.readOnlyHttpHeaders(headers);
+    }
+
+    //the response object is created only when the message is not cached yet
+    public byte[] encode(final RuntimeException ex, final Function<String, ?> response) {
+        return bodies.get(Arrays.asList(ex.getClass(), ex.getMessage()), key -> write(response.apply(ex.getMessage())));
+    }
+
+    public ResponseEntity<Object> badRequest(final RuntimeException ex, final Function<String, ?> response) {
+        return new ResponseEntity<>(encode(ex, response), JSON_HEADERS, HttpStatus.BAD_REQUEST);
+    }
+
+    public ResponseEntity<Object> response(final RuntimeException ex,
+                                           final Function<String, ?> response,
+                                           final HttpHeaders headers,
+                                           final HttpStatus status) {
+        final HttpHeaders responseHeaders = new HttpHeaders();
+        responseHeaders.putAll(JSON_HEADERS);
+        responseHeaders.putAll(headers);
+        return new ResponseEntity<>(encode(ex, response), responseHeaders, status);
+    }
+
+    private byte[] write(final Object response) {
+        try {
+            return objectMapper.writeValueAsBytes(response);
+        } catch (final JsonProcessingException ex) {
+            throw new IllegalStateException("Error response can not be serialized", ex);
+        }
+    }
+}
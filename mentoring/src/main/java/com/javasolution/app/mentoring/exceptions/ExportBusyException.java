@@ -0,0 +1,17 @@
+package com.javasolution.app.mentoring.exceptions;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@Getter
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class ExportBusyException extends BusinessException {
+
+    private final long retryAfterSeconds;
+
+    public ExportBusyException(final String message, final long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
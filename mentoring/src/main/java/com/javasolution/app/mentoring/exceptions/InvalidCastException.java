@@ -4,7 +4,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
 @ResponseStatus(HttpStatus.BAD_REQUEST)
-public class InvalidCastException extends RuntimeException {
+public class InvalidCastException extends BusinessException {
 
     public InvalidCastException(final String message) {
         super(message);
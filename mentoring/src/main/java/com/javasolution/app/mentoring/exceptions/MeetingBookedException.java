@@ -4,7 +4,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
 @ResponseStatus(HttpStatus.BAD_REQUEST)
-public class MeetingBookedException extends RuntimeException {
+public class MeetingBookedException extends BusinessException {
 
     public MeetingBookedException(final String message) {
         super(message);
@@ -4,7 +4,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
 @ResponseStatus(HttpStatus.BAD_REQUEST)
-public class MeetingBookingAlreadyExistsException extends RuntimeException {
+public class MeetingBookingAlreadyExistsException extends BusinessException {
 
     public MeetingBookingAlreadyExistsException(final String message) {
         super(message);
@@ -4,7 +4,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
 @ResponseStatus(HttpStatus.BAD_REQUEST)
-public class MeetingBookingNotFoundException extends RuntimeException {
+public class MeetingBookingNotFoundException extends BusinessException {
 
     public MeetingBookingNotFoundException(final String message) {
         super(message);
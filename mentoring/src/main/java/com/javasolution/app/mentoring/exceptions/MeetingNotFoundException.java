@@ -4,7 +4,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
 @ResponseStatus(HttpStatus.BAD_REQUEST)
-public class MeetingNotFoundException extends RuntimeException {
+public class MeetingNotFoundException extends BusinessException {
 
     public MeetingNotFoundException(final String message) {
         super(message);
@@ -4,7 +4,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
 @ResponseStatus(HttpStatus.BAD_REQUEST)
-public class MeetingTimeException extends RuntimeException {
+public class MeetingTimeException extends BusinessException {
 
     public MeetingTimeException(final String message) {
         super(message);
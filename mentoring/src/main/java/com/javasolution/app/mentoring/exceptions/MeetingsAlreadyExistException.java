@@ -15,7 +15,7 @@ import java.util.List;
 @ResponseStatus(HttpStatus.BAD_REQUEST)
 @Getter
 @Setter
-public class MeetingsAlreadyExistException extends RuntimeException {
+public class MeetingsAlreadyExistException extends BusinessException {
 
     final List<MeetingModel> collisionMeetings;
 
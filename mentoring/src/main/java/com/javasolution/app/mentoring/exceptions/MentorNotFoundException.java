@@ -4,7 +4,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
 @ResponseStatus(HttpStatus.BAD_REQUEST)
-public class MentorNotFoundException extends RuntimeException {
+public class MentorNotFoundException extends BusinessException {
 
     public MentorNotFoundException(final String message) {
         super(message);
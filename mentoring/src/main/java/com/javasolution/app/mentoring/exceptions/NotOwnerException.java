@@ -4,7 +4,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
 @ResponseStatus(HttpStatus.BAD_REQUEST)
-public class NotOwnerException extends RuntimeException {
+public class NotOwnerException extends BusinessException {
 
     public NotOwnerException(final String message) {
         super(message);
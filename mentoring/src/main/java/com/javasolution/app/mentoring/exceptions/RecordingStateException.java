@@ -0,0 +1,12 @@
+package com.javasolution.app.mentoring.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class RecordingStateException extends BusinessException {
+
+    public RecordingStateException(final String message) {
+        super(message);
+    }
+}
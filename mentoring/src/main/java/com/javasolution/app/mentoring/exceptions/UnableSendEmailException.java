@@ -4,7 +4,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
 @ResponseStatus(HttpStatus.BAD_REQUEST)
-public class UnableSendEmailException extends RuntimeException {
+public class UnableSendEmailException extends BusinessException {
 
     public UnableSendEmailException(final String message) {
         super(message);
@@ -5,7 +5,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
 @ResponseStatus(HttpStatus.BAD_REQUEST)
-public class UserNotFoundException extends RuntimeException {
+public class UserNotFoundException extends BusinessException {
 
     public UserNotFoundException(final String message) {
         super(message);
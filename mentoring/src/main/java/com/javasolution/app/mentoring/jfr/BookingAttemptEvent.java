@@ -0,0 +1,24 @@
+package com.javasolution.app.mentoring.jfr;
+
+import jdk.jfr.*;
+
+@Name("com.javasolution.mentoring.BookingAttempt")
+@Label("Booking Attempt")
+@Category({"Mentoring", "Booking"})
+@Description("A student trying to book a meeting")
+@StackTrace(false)
+public class BookingAttemptEvent extends Event {
+
+    @Label("Meeting Id")
+    public long meetingId;
+
+    @Label("Student Id")
+    public long studentId;
+
+    @Label("Booking Id")
+    public long bookingId;
+
+    //booked, already_booked, not_found or error
+    @Label("Outcome")
+    public String outcome;
+}
@@ -0,0 +1,32 @@
+package com.javasolution.app.mentoring.jfr;
+
+import jdk.jfr.*;
+
+@Name("com.javasolution.mentoring.CollisionCheck")
+@Label("Collision Check")
+@Category({"Mentoring", "Meetings"})
+@Description("New meetings of a mentor checked against the meetings already in the database")
+@StackTrace(false)
+public class CollisionCheckEvent extends Event {
+
+    @Label("Mentor Id")
+    public long mentorId;
+
+    @Label("Meetings")
+    public int meetings;
+
+    //time spent loading the meetings of the mentor, the rest of the event is the comparison
+    @Label("Lookup Duration")
+    @Timespan(Timespan.NANOSECONDS)
+    public long lookupDuration;
+
+    @Label("Database Meetings")
+    public int databaseMeetings;
+
+    @Label("Collisions")
+    public int collisions;
+
+    //free or collision
+    @Label("Outcome")
+    public String outcome;
+}
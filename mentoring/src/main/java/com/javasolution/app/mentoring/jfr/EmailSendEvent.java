@@ -0,0 +1,21 @@
+package com.javasolution.app.mentoring.jfr;
+
+import jdk.jfr.*;
+
+@Name("com.javasolution.mentoring.EmailSend")
+@Label("Email Send")
+@Category({"Mentoring", "Email"})
+@Description("An email of the outbox handed to the mail server")
+@StackTrace(false)
+public class EmailSendEvent extends Event {
+
+    @Label("Outbox Email Id")
+    public long emailId;
+
+    @Label("Attempt")
+    public int attempt;
+
+    //sent or failed
+    @Label("Outcome")
+    public String outcome;
+}
@@ -0,0 +1,21 @@
+package com.javasolution.app.mentoring.jfr;
+
+import jdk.jfr.*;
+
+@Name("com.javasolution.mentoring.JwtValidate")
+@Label("JWT Validate")
+@Category({"Mentoring", "Security"})
+@Description("Claims of a json web token read from the cache or verified")
+@StackTrace(false)
+public class JwtValidateEvent extends Event {
+
+    @Label("Subject")
+    public String subject;
+
+    @Label("Cached")
+    public boolean cached;
+
+    //valid, expired or invalid
+    @Label("Outcome")
+    public String outcome;
+}
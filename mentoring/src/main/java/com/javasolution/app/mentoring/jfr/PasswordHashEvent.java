@@ -0,0 +1,23 @@
+package com.javasolution.app.mentoring.jfr;
+
+import jdk.jfr.*;
+
+@Name("com.javasolution.mentoring.PasswordHash")
+@Label("Password Hash")
+@Category({"Mentoring", "Security"})
+@Description("A bcrypt encode or match, including the wait for a hashing thread")
+@StackTrace(false)
+public class PasswordHashEvent extends Event {
+
+    //encode or matches
+    @Label("Operation")
+    public String operation;
+
+    @Label("Queue Wait")
+    @Timespan(Timespan.NANOSECONDS)
+    public long queueWait;
+
+    //encoded, matched, mismatched, rejected or error
+    @Label("Outcome")
+    public String outcome;
+}
@@ -0,0 +1,42 @@
+package com.javasolution.app.mentoring.projections;
+
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+//columns of a booking returned by the list endpoints, built with a jpql constructor expression
+@Getter
+public class MeetingBookingView {
+
+    private final Long id;
+
+    private final LocalDateTime createAt;
+
+    private final UserView student;
+
+    private final MeetingView meeting;
+
+    public MeetingBookingView(final Long id,
+                              final LocalDateTime createAt,
+                              final Long studentId,
+                              final String studentName,
+                              final String studentSurname,
+                              final String studentEmail,
+                              final Long meetingId,
+                              final LocalDate meetingDate,
+                              final LocalTime meetingStartTime,
+                              final LocalTime meetingEndTime,
+                              final Boolean booked,
+                              final Long mentorId,
+                              final String mentorName,
+                              final String mentorSurname,
+                              final String mentorEmail) {
+        this.id = id;
+        this.createAt = createAt;
+        this.student = new UserView(studentId, studentName, studentSurname, studentEmail);
+        this.meeting = new MeetingView(meetingId, meetingDate, meetingStartTime, meetingEndTime, booked,
+                mentorId, mentorName, mentorSurname, mentorEmail);
+    }
+}
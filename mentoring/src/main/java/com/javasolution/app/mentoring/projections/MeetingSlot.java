@@ -0,0 +1,19 @@
+package com.javasolution.app.mentoring.projections;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+public interface MeetingSlot {
+
+    Long getId();
+
+    Long getMentorId();
+
+    LocalDate getMeetingDate();
+
+    LocalTime getMeetingStartTime();
+
+    LocalTime getMeetingEndTime();
+
+    Boolean getBooked();
+}
@@ -0,0 +1,40 @@
+package com.javasolution.app.mentoring.projections;
+
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+//columns of a meeting returned by the list endpoints, built with a jpql constructor expression
+@Getter
+public class MeetingView {
+
+    private final Long id;
+
+    private final LocalDate meetingDate;
+
+    private final LocalTime meetingStartTime;
+
+    private final LocalTime meetingEndTime;
+
+    private final Boolean booked;
+
+    private final UserView mentor;
+
+    public MeetingView(final Long id,
+                       final LocalDate meetingDate,
+                       final LocalTime meetingStartTime,
+                       final LocalTime meetingEndTime,
+                       final Boolean booked,
+                       final Long mentorId,
+                       final String mentorName,
+                       final String mentorSurname,
+                       final String mentorEmail) {
+        this.id = id;
+        this.meetingDate = meetingDate;
+        this.meetingStartTime = meetingStartTime;
+        this.meetingEndTime = meetingEndTime;
+        this.booked = booked;
+        this.mentor = new UserView(mentorId, mentorName, mentorSurname, mentorEmail);
+    }
+}
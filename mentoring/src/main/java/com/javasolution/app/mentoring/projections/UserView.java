@@ -0,0 +1,30 @@
+package com.javasolution.app.mentoring.projections;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.javasolution.app.mentoring.entities.UserRole;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+//columns of a user returned by the list endpoints, built with a jpql constructor expression
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserView {
+
+    private final Long id;
+
+    private final String name;
+
+    private final String surname;
+
+    private final String email;
+
+    private final UserRole userRole;
+
+    private final Boolean enabled;
+
+    //nested users (mentors, students) carry only their identity
+    public UserView(final Long id, final String name, final String surname, final String email) {
+        this(id, name, surname, email, null, null);
+    }
+}
@@ -1,13 +1,23 @@
 package com.javasolution.app.mentoring.repositories;
 
 import com.javasolution.app.mentoring.entities.ConfirmationToken;
+import com.javasolution.app.mentoring.entities.User;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
 
 @Repository
 public interface ConfirmationTokenRepository extends CrudRepository<ConfirmationToken, Long> {
+    @EntityGraph(attributePaths = "user")
     Optional<ConfirmationToken> findConfirmationTokenByConfirmationToken(final String token);
     ConfirmationToken findConfirmationTokenByUserId(Long id);
+
+    @Modifying
+    @Query("delete from ConfirmationTokens t where t.user = :user")
+    int deleteAllTokensOf(@Param("user") final User user);
 }
@@ -2,18 +2,51 @@ package com.javasolution.app.mentoring.repositories;
 
 import com.javasolution.app.mentoring.entities.MeetingBooking;
 import com.javasolution.app.mentoring.entities.User;
+import com.javasolution.app.mentoring.projections.MeetingBookingView;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface MeetingBookingRepository extends CrudRepository<MeetingBooking, Long> {
 
+    String BOOKING_VIEW = "select new com.javasolution.app.mentoring.projections.MeetingBookingView(b.id, b.createAt, " +
+            "s.id, s.name, s.surname, s.email, m.id, m.meetingDate, m.meetingStartTime, m.meetingEndTime, m.booked, " +
+            "u.id, u.name, u.surname, u.email) " +
+            "from MeetingsBookings b join b.student s join b.meeting m join m.mentor u ";
+
+    @Override
+    @EntityGraph(attributePaths = {"student", "meeting", "meeting.mentor"})
+    Optional<MeetingBooking> findById(final Long id);
+
+    @Query(BOOKING_VIEW + "order by b.id")
+    List<MeetingBookingView> findAllViews();
+
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(BOOKING_VIEW + "order by b.id")
+    Stream<MeetingBookingView> streamAllViews();
+
     Optional<MeetingBooking> findByMeetingId(final Long id);
 
-    List<MeetingBooking> findAllByStudent(final User student);
+    @Query(BOOKING_VIEW + "where b.student = :student order by b.id")
+    List<MeetingBookingView> findAllViewsByStudent(@Param("student") final User student);
 
     Optional<MeetingBooking> findByStudent(final User student);
+
+    @Modifying
+    @Query("delete from MeetingsBookings b where b.id = :id")
+    int deleteBookingById(@Param("id") final Long id);
+
+    @Modifying
+    @Query("delete from MeetingsBookings b where b.student = :student")
+    int deleteAllBookingsOf(@Param("student") final User student);
 }
@@ -1,10 +1,116 @@
 package com.javasolution.app.mentoring.repositories;
 
 import com.javasolution.app.mentoring.entities.Meeting;
+import com.javasolution.app.mentoring.entities.User;
+import com.javasolution.app.mentoring.projections.MeetingSlot;
+import com.javasolution.app.mentoring.projections.MeetingView;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
 @Repository
 public interface MeetingRepository extends CrudRepository<Meeting, Long> {
-    Iterable<Meeting> findAllByBooked(boolean isBooked);
+
+    //list endpoints read only the columns they return, no entities are hydrated
+    String MEETING_VIEW = "select new com.javasolution.app.mentoring.projections.MeetingView(m.id, m.meetingDate, " +
+            "m.meetingStartTime, m.meetingEndTime, m.booked, u.id, u.name, u.surname, u.email) " +
+            "from Meetings m join m.mentor u ";
+
+    @Override
+    @EntityGraph(attributePaths = "mentor")
+    Optional<Meeting> findById(final Long id);
+
+    @Query("select m.id as id, m.mentor.id as mentorId, m.meetingDate as meetingDate, m.meetingStartTime as meetingStartTime, " +
+            "m.meetingEndTime as meetingEndTime, m.booked as booked from Meetings m")
+    List<MeetingSlot> findAllSlotsBy();
+
+    @Query("select m from Meetings m where m.mentor = :mentor and m.meetingDate = :meetingDate " +
+            "and m.meetingStartTime < :endTime and m.meetingEndTime > :startTime")
+    List<Meeting> findAllOverlapping(@Param("mentor") final User mentor,
+                                     @Param("meetingDate") final LocalDate meetingDate,
+                                     @Param("startTime") final LocalTime startTime,
+                                     @Param("endTime") final LocalTime endTime);
+
+    //the first pages have no cursor, so their rows are cached until a meeting or a user is written
+    @Query(MEETING_VIEW + "order by m.meetingDate, m.meetingStartTime, m.id")
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"))
+    List<MeetingView> findFirstPage(final Pageable pageable);
+
+    @Query(MEETING_VIEW + "where m.meetingDate >= :meetingDate " +
+            "and (m.meetingDate > :meetingDate or m.meetingStartTime > :meetingStartTime " +
+            "or (m.meetingStartTime = :meetingStartTime and m.id > :id)) " +
+            "order by m.meetingDate, m.meetingStartTime, m.id")
+    List<MeetingView> findPageAfter(@Param("meetingDate") final LocalDate meetingDate,
+                                    @Param("meetingStartTime") final LocalTime meetingStartTime,
+                                    @Param("id") final Long id,
+                                    final Pageable pageable);
+
+    @Query(MEETING_VIEW + "where m.booked = :booked order by m.meetingDate, m.meetingStartTime, m.id")
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"))
+    List<MeetingView> findFirstPageByBooked(@Param("booked") final boolean booked, final Pageable pageable);
+
+    @Query(MEETING_VIEW + "where m.booked = :booked and m.meetingDate >= :meetingDate " +
+            "and (m.meetingDate > :meetingDate or m.meetingStartTime > :meetingStartTime " +
+            "or (m.meetingStartTime = :meetingStartTime and m.id > :id)) " +
+            "order by m.meetingDate, m.meetingStartTime, m.id")
+    List<MeetingView> findPageByBookedAfter(@Param("booked") final boolean booked,
+                                            @Param("meetingDate") final LocalDate meetingDate,
+                                            @Param("meetingStartTime") final LocalTime meetingStartTime,
+                                            @Param("id") final Long id,
+                                            final Pageable pageable);
+
+    @Query(MEETING_VIEW + "where m.booked = false and m.meetingDate >= :fromDate " +
+            "and (m.meetingDate > :fromDate or m.meetingStartTime >= :fromTime) " +
+            "order by m.meetingDate, m.meetingStartTime, m.id")
+    List<MeetingView> findAvailableFrom(@Param("fromDate") final LocalDate fromDate,
+                                        @Param("fromTime") final LocalTime fromTime,
+                                        final Pageable pageable);
+
+    @Query(MEETING_VIEW + "where m.booked = false and m.meetingDate >= :fromDate " +
+            "and (m.meetingDate > :fromDate or m.meetingStartTime >= :fromTime) and m.meetingDate <= :toDate " +
+            "order by m.meetingDate, m.meetingStartTime, m.id")
+    List<MeetingView> findAvailableBetween(@Param("fromDate") final LocalDate fromDate,
+                                           @Param("fromTime") final LocalTime fromTime,
+                                           @Param("toDate") final LocalDate toDate,
+                                           final Pageable pageable);
+
+    @Query(MEETING_VIEW + "where m.updateAt > :since and m.updateAt <= :until order by m.updateAt, m.id")
+    List<MeetingView> findChangedBetween(@Param("since") final LocalDateTime since,
+                                         @Param("until") final LocalDateTime until);
+
+    //export streams the rows, the driver fetches them in chunks of the fetch size
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(MEETING_VIEW + "order by m.id")
+    Stream<MeetingView> streamAllViews();
+
+    @Modifying
+    @Query("update Meetings m set m.booked = true, m.updateAt = :now where m.id = :id and m.booked = false")
+    int claimMeeting(@Param("id") final Long id, @Param("now") final LocalDateTime now);
+
+    @Modifying
+    @Query("update Meetings m set m.booked = false, m.updateAt = :now where m.id = :id and m.booked = true")
+    int releaseMeeting(@Param("id") final Long id, @Param("now") final LocalDateTime now);
+
+    @Query("select m.id as id, m.mentor.id as mentorId, m.meetingDate as meetingDate, m.meetingStartTime as meetingStartTime, " +
+            "m.meetingEndTime as meetingEndTime, m.booked as booked from MeetingsBookings b join b.meeting m " +
+            "where b.student = :student")
+    List<MeetingSlot> findAllSlotsBookedBy(@Param("student") final User student);
+
+    @Modifying
+    @Query("update Meetings m set m.booked = false, m.updateAt = :now where m.id in " +
+            "(select b.meeting.id from MeetingsBookings b where b.student = :student)")
+    int releaseMeetingsBookedBy(@Param("student") final User student, @Param("now") final LocalDateTime now);
 }
@@ -0,0 +1,23 @@
+package com.javasolution.app.mentoring.repositories;
+
+import com.javasolution.app.mentoring.entities.MeetingTombstone;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface MeetingTombstoneRepository extends CrudRepository<MeetingTombstone, Long> {
+
+    @Query("select t.meetingId from MeetingTombstones t where t.deletedAt > :since and t.deletedAt <= :until")
+    List<Long> findMeetingIdsDeletedBetween(@Param("since") final LocalDateTime since,
+                                            @Param("until") final LocalDateTime until);
+
+    @Modifying
+    @Query("delete from MeetingTombstones t where t.deletedAt < :before")
+    int deleteAllDeletedBefore(@Param("before") final LocalDateTime before);
+}
@@ -0,0 +1,36 @@
+package com.javasolution.app.mentoring.repositories;
+
+import com.javasolution.app.mentoring.entities.OutboxEmail;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OutboxEmailRepository extends CrudRepository<OutboxEmail, Long> {
+
+    @Query("select e.id from OutboxEmails e where e.nextAttemptAt <= :now order by e.nextAttemptAt")
+    List<Long> findDueIds(@Param("now") final LocalDateTime now, final Pageable pageable);
+
+    //the condition is checked again on the locked rows, so of concurrent dispatchers only one claims an email
+    @Modifying
+    @Query("update OutboxEmails e set e.claimToken = :claimToken, e.nextAttemptAt = :leaseEnd " +
+            "where e.id in :ids and e.nextAttemptAt <= :now")
+    int claim(@Param("ids") final List<Long> ids,
+              @Param("claimToken") final String claimToken,
+              @Param("now") final LocalDateTime now,
+              @Param("leaseEnd") final LocalDateTime leaseEnd);
+
+    List<OutboxEmail> findAllByClaimToken(final String claimToken);
+
+    long countByNextAttemptAtIsNull();
+
+    @Modifying
+    @Query("delete from OutboxEmails e where e.nextAttemptAt is null and e.createAt < :before")
+    int deleteAllDeadCreatedBefore(@Param("before") final LocalDateTime before);
+}
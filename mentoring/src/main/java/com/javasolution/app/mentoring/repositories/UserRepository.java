@@ -2,12 +2,29 @@ package com.javasolution.app.mentoring.repositories;
 
 import com.javasolution.app.mentoring.entities.User;
 import com.javasolution.app.mentoring.entities.UserRole;
+import com.javasolution.app.mentoring.projections.UserView;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.List;
+
 @Repository
 public interface UserRepository extends CrudRepository<User, Long> {
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"))
     User findByEmail(final String email);
 
-    User findByUserRole(final UserRole userRole);
+    List<User> findAllByUserRole(final UserRole userRole);
+
+    @Query("select new com.javasolution.app.mentoring.projections.UserView(u.id, u.name, u.surname, u.email, " +
+            "u.userRole, u.enabled) from Users u order by u.id")
+    List<UserView> findAllViews();
+
+    @Modifying
+    @Query("delete from Users u where u.id = :id")
+    int deleteUserById(@Param("id") final Long id);
 }
\ No newline at end of file
@@ -0,0 +1,20 @@
+package com.javasolution.app.mentoring.responses;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+public class CalendarConsistencyResponse {
+
+    private boolean consistent;
+
+    private List<LocalDate> inconsistentDates;
+
+    private boolean repaired;
+}
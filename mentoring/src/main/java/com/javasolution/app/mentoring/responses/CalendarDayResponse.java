@@ -0,0 +1,23 @@
+package com.javasolution.app.mentoring.responses;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+@Getter
+@Setter
+@AllArgsConstructor
+public class CalendarDayResponse {
+
+    private LocalDate date;
+
+    private int meetings;
+
+    private int bookedMeetings;
+
+    private int freeMeetings;
+
+    private boolean full;
+}
@@ -0,0 +1,15 @@
+package com.javasolution.app.mentoring.responses;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class CursorPage<T> {
+
+    private final List<T> content;
+
+    private final String nextCursor;
+}
@@ -0,0 +1,23 @@
+package com.javasolution.app.mentoring.responses;
+
+import com.javasolution.app.mentoring.projections.MeetingView;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class MeetingChangesResponse {
+
+    //value of since for the next poll
+    private final LocalDateTime watermark;
+
+    //the changes are not known anymore, the client has to reload the not booked meetings
+    private final boolean reset;
+
+    private final List<MeetingView> meetings;
+
+    private final List<Long> removedMeetingIds;
+}
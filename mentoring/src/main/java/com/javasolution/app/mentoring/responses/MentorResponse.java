@@ -0,0 +1,19 @@
+package com.javasolution.app.mentoring.responses;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+public class MentorResponse {
+
+    private Long id;
+
+    private String name;
+
+    private String surname;
+
+    private String email;
+}
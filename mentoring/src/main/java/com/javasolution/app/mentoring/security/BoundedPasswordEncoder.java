@@ -0,0 +1,109 @@
+package com.javasolution.app.mentoring.security;
+
+import com.javasolution.app.mentoring.exceptions.PasswordHashingBusyException;
+import com.javasolution.app.mentoring.jfr.PasswordHashEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+//bcrypt runs on its own small pool, so sign-in and sign-up storms can not take every request thread
+@Component
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private final BCryptPasswordEncoder bCryptPasswordEncoder;
+    private final ThreadPoolExecutor hashingExecutor;
+    private final long retryAfterSeconds;
+    private final Timer hashingTimer;
+    private final Counter rejectedCounter;
+
+    public BoundedPasswordEncoder(@Value("${mentoring.security.bcrypt.strength:10}") final int strength,
+                                  @Value("${mentoring.security.bcrypt.threads:0}") final int threads,
+                                  @Value("${mentoring.security.bcrypt.queue-capacity:100}") final int queueCapacity,
+                                  @Value("${mentoring.security.bcrypt.retry-after:1}") final long retryAfterSeconds,
+                                  final MeterRegistry meterRegistry) {
+
+        final int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+
+        this.bCryptPasswordEncoder = new BCryptPasswordEncoder(strength);
+        this.hashingExecutor = new ThreadPoolExecutor(poolSize, poolSize,
+                0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity));
+        this.retryAfterSeconds = retryAfterSeconds;
+
+        this.hashingTimer = Timer.builder("password.hashing")
+                .description("Time of a single bcrypt encode or match")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("password.hashing.rejected")
+                .description("Hashing requests rejected because the queue was full")
+                .register(meterRegistry);
+        Gauge.builder("password.hashing.queue", hashingExecutor, executor -> executor.getQueue().size())
+                .description("Hashing requests waiting for a thread")
+                .register(meterRegistry);
+    }
+
+    private <T> T execute(final String operation, final Supplier<T> hashing) {
+
+        final PasswordHashEvent event = new PasswordHashEvent();
+        event.begin();
+        event.operation = operation;
+
+        final long submittedAt = System.nanoTime();
+        final Future<T> result;
+
+        try {
+            result = hashingExecutor.submit(() -> {
+                event.queueWait = System.nanoTime() - submittedAt;
+                return hashingTimer.record(hashing);
+            });
+        } catch (final RejectedExecutionException ex) {
+            rejectedCounter.increment();
+            event.outcome = "rejected";
+            event.commit();
+            throw new PasswordHashingBusyException("Too many sign-in and sign-up requests. Please try again later",
+                    retryAfterSeconds);
+        }
+
+        event.outcome = "error";
+        try {
+            final T value = result.get();
+            event.outcome = value instanceof Boolean ? ((Boolean) value ? "matched" : "mismatched") : "encoded";
+            return value;
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Password hashing was interrupted", ex);
+        } catch (final ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) throw (RuntimeException) ex.getCause();
+            throw new IllegalStateException("Password hashing failed", ex.getCause());
+        } finally {
+            event.commit();
+        }
+    }
+
+    @Override
+    public String encode(final CharSequence rawPassword) {
+        return execute("encode", () -> bCryptPasswordEncoder.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(final CharSequence rawPassword, final String encodedPassword) {
+        return execute("matches", () -> bCryptPasswordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(final String encodedPassword) {
+        return bCryptPasswordEncoder.upgradeEncoding(encodedPassword);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hashingExecutor.shutdown();
+    }
+}
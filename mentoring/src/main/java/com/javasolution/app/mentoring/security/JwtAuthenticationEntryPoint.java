@@ -12,18 +12,21 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 
 @Component
 public class JwtAuthenticationEntryPoint implements AuthenticationEntryPoint {
 
+    //every 401 has the same body, it is encoded once
+    private static final byte[] INVALID_LOGIN_RESPONSE = new Gson().toJson(new InvalidLoginResponse())
+            .getBytes(StandardCharsets.UTF_8);
+
     @Override
     public void commence(final HttpServletRequest request, final HttpServletResponse response, final AuthenticationException authException) throws IOException, ServletException {
 
-        final InvalidLoginResponse loginResponse = new InvalidLoginResponse();
-        final String jsonLoginResponse = new Gson().toJson(loginResponse);
-
         response.setContentType(MediaType.APPLICATION_JSON.toString());
         response.setStatus(HttpStatus.UNAUTHORIZED.value());
-        response.getWriter().print(jsonLoginResponse);
+        response.setContentLength(INVALID_LOGIN_RESPONSE.length);
+        response.getOutputStream().write(INVALID_LOGIN_RESPONSE);
     }
 }
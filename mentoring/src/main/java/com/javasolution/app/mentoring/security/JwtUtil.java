@@ -1,14 +1,23 @@
 package com.javasolution.app.mentoring.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.javasolution.app.mentoring.jfr.JwtValidateEvent;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 import static com.javasolution.app.mentoring.security.SecurityConstants.EXPIRATION_TIME;
@@ -18,7 +27,70 @@ import static com.javasolution.app.mentoring.security.SecurityConstants.SECRET_K
 @Service
 public class JwtUtil {
 
+    private static final int MAX_CACHED_TOKENS = 10_000;
+
+    //verified claims by token, an entry never outlives the token itself
+    private final Cache<String, Claims> verifiedClaims = Caffeine.newBuilder()
+            .maximumSize(MAX_CACHED_TOKENS)
+            .expireAfter(new Expiry<String, Claims>() {
+                @Override
+                public long expireAfterCreate(final String token, final Claims claims, final long currentTime) {
+                    final long expiration = claims.getExpiration() != null
+                            ? claims.getExpiration().getTime()
+                            : System.currentTimeMillis() + EXPIRATION_TIME;
+                    return TimeUnit.MILLISECONDS.toNanos(Math.max(0, expiration - System.currentTimeMillis()));
+                }
+
+                @Override
+                public long expireAfterUpdate(final String token, final Claims claims,
+                                              final long currentTime, final long currentDuration) {
+                    return currentDuration;
+                }
+
+                @Override
+                public long expireAfterRead(final String token, final Claims claims,
+                                            final long currentTime, final long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .recordStats()
+            .build();
+
+    @Autowired
+    public void monitorCache(final MeterRegistry meterRegistry) {
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedClaims, "jwtClaims");
+    }
+
+    //invalid or expired tokens throw and are never cached
     private Claims extractAllClaims(final String token) {
+
+        final JwtValidateEvent event = new JwtValidateEvent();
+        event.begin();
+
+        try {
+            //the loader runs only on a cache miss
+            event.cached = true;
+            final Claims claims = verifiedClaims.get(token, key -> {
+                event.cached = false;
+                return parseClaims(key);
+            });
+            event.subject = claims.getSubject();
+            event.outcome = "valid";
+
+            return claims;
+        } catch (final ExpiredJwtException ex) {
+            event.subject = ex.getClaims().getSubject();
+            event.outcome = "expired";
+            throw ex;
+        } catch (final RuntimeException ex) {
+            event.outcome = "invalid";
+            throw ex;
+        } finally {
+            event.commit();
+        }
+    }
+
+    private Claims parseClaims(final String token) {
         return Jwts.parser().setSigningKey(SECRET_KEY).parseClaimsJws(token).getBody();
     }
 
@@ -31,8 +103,8 @@ public class JwtUtil {
         return extractClaim(token, Claims::getExpiration);
     }
 
-    private Boolean isTokenExpired(final String token) {
-        return extractExpiration(token).before(new Date());
+    private Boolean isTokenExpired(final Claims claims) {
+        return claims.getExpiration().before(new Date());
     }
 
     private String createToken(final Map<String, Object> claims, final String subject) {
@@ -51,7 +123,7 @@ public class JwtUtil {
     }
 
     public Boolean validateToken(final String token, final UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        final Claims claims = extractAllClaims(token);
+        return (claims.getSubject().equals(userDetails.getUsername()) && !isTokenExpired(claims));
     }
 }
@@ -5,6 +5,7 @@ import com.javasolution.app.mentoring.entities.UserRole;
 import com.javasolution.app.mentoring.services.UserService;
 import lombok.AllArgsConstructor;
 import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
@@ -12,8 +13,11 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.util.matcher.AndRequestMatcher;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+
+import javax.servlet.http.HttpServletRequest;
 
 import static com.javasolution.app.mentoring.security.SecurityConstants.H2_CONSOLE;
 
@@ -25,11 +29,8 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
     private final UserService userService;
     private final JwtAuthenticationEntryPoint jwtAuthenticationEntryPoint;
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
-
-    @Bean
-    public BCryptPasswordEncoder bCryptPasswordEncoder() {
-        return new BCryptPasswordEncoder();
-    }
+    private final BoundedPasswordEncoder boundedPasswordEncoder;
+    private final Environment environment;
 
     @Override
     @Bean
@@ -65,6 +66,7 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
                 .antMatchers(HttpMethod.DELETE, "/api/users/me").hasAuthority(STUDENT)
                 .antMatchers(HttpMethod.GET, "/api/users/me").hasAnyAuthority(STUDENT,MENTOR)
                 .antMatchers(HttpMethod.GET, "/api/users").hasAuthority(MENTOR)
+                .antMatchers(HttpMethod.GET, "/api/users/mentors").hasAnyAuthority(MENTOR,STUDENT)
                 .antMatchers(HttpMethod.GET, "/api/users/{userId}").hasAuthority(MENTOR)
 
                 //meetings
@@ -72,16 +74,33 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
                 .antMatchers(HttpMethod.DELETE, "/api/meetings/{meetingId}").hasAuthority(MENTOR)
                 .antMatchers(HttpMethod.PUT, "/api/meetings/{meetingId}").hasAuthority(MENTOR)
                 .antMatchers(HttpMethod.GET, "/api/meetings").hasAnyAuthority(MENTOR,STUDENT)
+                .antMatchers(HttpMethod.GET, "/api/meetings/available/**").hasAnyAuthority(MENTOR,STUDENT)
+                .antMatchers(HttpMethod.GET, "/api/meetings/calendar/consistency").hasAuthority(MENTOR)
+                .antMatchers(HttpMethod.POST, "/api/meetings/calendar/consistency").hasAuthority(MENTOR)
+                .antMatchers(HttpMethod.GET, "/api/meetings/calendar").hasAnyAuthority(MENTOR,STUDENT)
+                .antMatchers(HttpMethod.GET, "/api/meetings/export").hasAuthority(MENTOR)
+                .antMatchers(HttpMethod.GET, "/api/meetings/changes").hasAnyAuthority(MENTOR,STUDENT)
+                .antMatchers(HttpMethod.GET, "/api/meetings/stream").hasAnyAuthority(MENTOR,STUDENT)
                 .antMatchers(HttpMethod.GET, "/api/meetings/{meetingId}").hasAnyAuthority(MENTOR,STUDENT)
 
                 //bookings
                 .antMatchers(HttpMethod.POST, "/api/meetings/{meetingId}/bookings").hasAuthority(STUDENT)
                 .antMatchers(HttpMethod.DELETE, "/api/bookings/{bookingId}").hasAuthority(STUDENT)
                 .antMatchers(HttpMethod.GET, "/api/bookings").hasAuthority(MENTOR)
+                .antMatchers(HttpMethod.GET, "/api/bookings/export").hasAuthority(MENTOR)
                 .antMatchers(HttpMethod.GET, "/api/bookings/{bookingId}").hasAuthority(MENTOR)
                 .antMatchers(HttpMethod.GET, "/api/bookings/me/{bookingId}").hasAuthority(STUDENT)
                 .antMatchers(HttpMethod.GET, "/api/bookings/me").hasAuthority(STUDENT)
 
+                //flight recordings
+                .antMatchers(HttpMethod.POST, "/api/recordings/**").hasAuthority(MENTOR)
+
+                //metrics, only the local scraper on the separate management port reads them without a token
+                .requestMatchers(new AndRequestMatcher(
+                        new AntPathRequestMatcher("/actuator/prometheus", HttpMethod.GET.name()),
+                        this::onManagementServer)).permitAll()
+                .antMatchers(HttpMethod.GET, "/actuator/**").hasAuthority(MENTOR)
+
 
                 .anyRequest()
                 .authenticated()
@@ -96,6 +115,15 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
     @Override
     protected void configure(final AuthenticationManagerBuilder auth) throws Exception {
         auth.userDetailsService(userService)
-                .passwordEncoder(bCryptPasswordEncoder());
+                .passwordEncoder(boundedPasswordEncoder);
+    }
+
+    //a management server on the application port is as public as the api
+    private boolean onManagementServer(final HttpServletRequest request) {
+
+        final int managementPort = environment.getProperty("management.server.port", Integer.class, -1);
+        final int serverPort = environment.getProperty("server.port", Integer.class, 8080);
+
+        return managementPort > 0 && managementPort != serverPort && request.getLocalPort() == managementPort;
     }
 }
@@ -1,6 +1,7 @@
 package com.javasolution.app.mentoring.services;
 
 import com.javasolution.app.mentoring.entities.ConfirmationToken;
+import com.javasolution.app.mentoring.entities.User;
 import com.javasolution.app.mentoring.repositories.ConfirmationTokenRepository;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
@@ -25,4 +26,8 @@ public class ConfirmationTokenService {
     public void deleteConfirmationToken(final Long id) {
         confirmationTokenRepository.deleteById(id);
     }
+
+    public void deleteConfirmationTokensOf(final User user) {
+        confirmationTokenRepository.deleteAllTokensOf(user);
+    }
 }
@@ -0,0 +1,99 @@
+package com.javasolution.app.mentoring.services;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalTime;
+
+//quarter-hour slots of one day as two 96-bit masks, each kept in a low (0-63) and a high (64-95) word
+@EqualsAndHashCode
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+final class DaySlots {
+
+    static final int SLOTS_PER_DAY = 96;
+    static final int MINUTES_PER_SLOT = 15;
+    static final DaySlots EMPTY = new DaySlots(0L, 0L, 0L, 0L);
+
+    private final long existingLow;
+    private final long existingHigh;
+    private final long bookedLow;
+    private final long bookedHigh;
+
+    static int firstSlot(final LocalTime startTime) {
+        return (startTime.getHour() * 60 + startTime.getMinute()) / MINUTES_PER_SLOT;
+    }
+
+    static int endSlot(final LocalTime endTime) {
+
+        //a meeting ending inside a slot still occupies it
+        final int minutes = endTime.getHour() * 60 + endTime.getMinute()
+                + (endTime.getSecond() > 0 || endTime.getNano() > 0 ? 1 : 0);
+
+        return Math.min(SLOTS_PER_DAY, (minutes + MINUTES_PER_SLOT - 1) / MINUTES_PER_SLOT);
+    }
+
+    private static long mask(final int word, final int fromSlot, final int toSlot) {
+
+        final int from = Math.max(fromSlot - word * 64, 0);
+        final int to = Math.min(toSlot - word * 64, 64);
+
+        if (from >= to) return 0L;
+
+        final long upper = to == 64 ? -1L : (1L << to) - 1;
+        final long lower = (1L << from) - 1;
+
+        return upper & ~lower;
+    }
+
+    DaySlots withMeeting(final int fromSlot, final int toSlot, final boolean booked) {
+
+        final long low = mask(0, fromSlot, toSlot);
+        final long high = mask(1, fromSlot, toSlot);
+
+        return new DaySlots(existingLow | low,
+                existingHigh | high,
+                booked ? bookedLow | low : bookedLow & ~low,
+                booked ? bookedHigh | high : bookedHigh & ~high);
+    }
+
+    DaySlots withoutMeeting(final int fromSlot, final int toSlot) {
+
+        final long low = ~mask(0, fromSlot, toSlot);
+        final long high = ~mask(1, fromSlot, toSlot);
+
+        return new DaySlots(existingLow & low, existingHigh & high, bookedLow & low, bookedHigh & high);
+    }
+
+    DaySlots withBooked(final int fromSlot, final int toSlot, final boolean booked) {
+
+        //only existing slots can be booked
+        final long low = mask(0, fromSlot, toSlot) & existingLow;
+        final long high = mask(1, fromSlot, toSlot) & existingHigh;
+
+        return new DaySlots(existingLow,
+                existingHigh,
+                booked ? bookedLow | low : bookedLow & ~low,
+                booked ? bookedHigh | high : bookedHigh & ~high);
+    }
+
+    int existingSlots() {
+        return Long.bitCount(existingLow) + Long.bitCount(existingHigh);
+    }
+
+    int bookedSlots() {
+        return Long.bitCount(bookedLow) + Long.bitCount(bookedHigh);
+    }
+
+    int freeSlots() {
+        return Long.bitCount(existingLow & ~bookedLow) + Long.bitCount(existingHigh & ~bookedHigh);
+    }
+
+    boolean isFull() {
+        return existingSlots() > 0 && freeSlots() == 0;
+    }
+
+    boolean isEmpty() {
+        return existingLow == 0 && existingHigh == 0;
+    }
+}
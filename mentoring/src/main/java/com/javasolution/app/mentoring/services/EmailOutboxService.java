@@ -0,0 +1,153 @@
+package com.javasolution.app.mentoring.services;
+
+import com.javasolution.app.mentoring.entities.OutboxEmail;
+import com.javasolution.app.mentoring.jfr.EmailSendEvent;
+import com.javasolution.app.mentoring.repositories.OutboxEmailRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+
+@Service
+public class EmailOutboxService {
+
+    private static final int WORKERS = 4;
+    private static final int BATCH_SIZE = 50;
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long FIRST_RETRY_SECONDS = 10;
+
+    private final ExecutorService mailExecutor = new ThreadPoolExecutor(WORKERS, WORKERS,
+            0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(BATCH_SIZE));
+
+    private final OutboxEmailRepository outboxEmailRepository;
+    private final JavaMailSender javaMailSender;
+    private final StageMetrics stageMetrics;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration lease;
+    private final Duration deadRetention;
+
+    public EmailOutboxService(final OutboxEmailRepository outboxEmailRepository,
+                              final JavaMailSender javaMailSender,
+                              final StageMetrics stageMetrics,
+                              final TransactionTemplate transactionTemplate,
+                              @Value("${mentoring.mail.outbox.lease:5m}") final Duration lease,
+                              @Value("${mentoring.mail.outbox.dead-retention:30d}") final Duration deadRetention) {
+        this.outboxEmailRepository = outboxEmailRepository;
+        this.javaMailSender = javaMailSender;
+        this.stageMetrics = stageMetrics;
+        this.transactionTemplate = transactionTemplate;
+        this.lease = lease;
+        this.deadRetention = deadRetention;
+    }
+
+    //joins the transaction of the caller, so the email exists only if the caller commits
+    public void enqueue(final String recipient, final String subject, final String content) {
+        outboxEmailRepository.save(new OutboxEmail(recipient, subject, content));
+    }
+
+    @Scheduled(fixedDelayString = "${mentoring.mail.outbox.poll-interval:1000}")
+    public void dispatch() {
+
+        final List<OutboxEmail> emails = claimDueEmails();
+
+        if (emails.isEmpty()) return;
+
+        final List<Callable<Void>> sendTasks = emails.stream()
+                .map(email -> (Callable<Void>) () -> {
+                    send(email);
+                    return null;
+                })
+                .collect(Collectors.toList());
+
+        try {
+            mailExecutor.invokeAll(sendTasks);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //other instances and overlapping runs skip claimed emails until the lease ends, an email of a crashed run is sent again then
+    private List<OutboxEmail> claimDueEmails() {
+
+        final LocalDateTime now = LocalDateTime.now();
+        final String claimToken = UUID.randomUUID().toString();
+
+        return transactionTemplate.execute(status -> {
+
+            final List<Long> dueIds = outboxEmailRepository.findDueIds(now, PageRequest.of(0, BATCH_SIZE));
+            if (dueIds.isEmpty() || outboxEmailRepository.claim(dueIds, claimToken, now, now.plus(lease)) == 0)
+                return List.of();
+
+            return outboxEmailRepository.findAllByClaimToken(claimToken);
+        });
+    }
+
+    private void send(final OutboxEmail email) {
+
+        final EmailSendEvent event = new EmailSendEvent();
+        event.begin();
+        event.emailId = email.getId();
+        event.attempt = email.getAttempts() + 1;
+
+        try {
+            final MimeMessage mimeMessage = javaMailSender.createMimeMessage();
+            final MimeMessageHelper mimeMessageHelper = new MimeMessageHelper(mimeMessage, true);
+            mimeMessageHelper.setTo(email.getRecipient());
+            mimeMessageHelper.setSubject(email.getSubject());
+
+            mimeMessage.setContent(email.getContent(), "text/html; charset=utf-8");
+            stageMetrics.record(StageMetrics.Stage.EMAIL_SEND, () -> javaMailSender.send(mimeMessage));
+
+            event.outcome = "sent";
+            outboxEmailRepository.deleteById(email.getId());
+        } catch (final MessagingException | MailException ex) {
+
+            event.outcome = "failed";
+            stageMetrics.emailFailure();
+
+            //retry with exponential backoff, give up after the last attempt
+            final int attempts = email.getAttempts() + 1;
+            email.setAttempts(attempts);
+            email.setClaimToken(null);
+
+            if (attempts >= MAX_ATTEMPTS) {
+                email.setNextAttemptAt(null);
+                stageMetrics.emailDead();
+            } else {
+                email.setNextAttemptAt(LocalDateTime.now().plusSeconds(FIRST_RETRY_SECONDS << (attempts - 1)));
+            }
+
+            outboxEmailRepository.save(email);
+        } finally {
+            event.commit();
+        }
+    }
+
+    //emails which were given up are kept for a while for inspection, then removed
+    @Transactional
+    @Scheduled(fixedDelayString = "${mentoring.mail.outbox.purge-interval:3600000}")
+    public void purgeDeadEmails() {
+        outboxEmailRepository.deleteAllDeadCreatedBefore(LocalDateTime.now().minus(deadRetention));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        mailExecutor.shutdown();
+    }
+}
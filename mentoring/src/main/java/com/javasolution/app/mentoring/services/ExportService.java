@@ -0,0 +1,131 @@
+package com.javasolution.app.mentoring.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.javasolution.app.mentoring.exceptions.ExportBusyException;
+import com.javasolution.app.mentoring.projections.MeetingBookingView;
+import com.javasolution.app.mentoring.projections.MeetingView;
+import com.javasolution.app.mentoring.repositories.MeetingBookingRepository;
+import com.javasolution.app.mentoring.repositories.MeetingRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+@Service
+public class ExportService {
+
+    public static final String NDJSON = "application/x-ndjson";
+
+    private static final int FLUSH_ROWS = 500;
+
+    private final MeetingRepository meetingRepository;
+    private final MeetingBookingRepository meetingBookingRepository;
+    private final ObjectMapper objectMapper;
+    private final Semaphore exports;
+    private final long retryAfterSeconds;
+
+    public ExportService(final MeetingRepository meetingRepository,
+                         final MeetingBookingRepository meetingBookingRepository,
+                         final ObjectMapper objectMapper,
+                         @Value("${mentoring.export.max-concurrent:2}") final int maxConcurrent,
+                         @Value("${mentoring.export.retry-after:5}") final long retryAfterSeconds) {
+        this.meetingRepository = meetingRepository;
+        this.meetingBookingRepository = meetingBookingRepository;
+        this.objectMapper = objectMapper;
+        this.exports = new Semaphore(maxConcurrent);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    //an export holds a transaction and a connection for as long as the client reads, so only a few run at once
+    public StreamingResponseBody limit(final StreamingResponseBody export) {
+
+        if (!exports.tryAcquire())
+            throw new ExportBusyException("Too many exports in progress. Please try again later", retryAfterSeconds);
+
+        //the body may never run when the request times out or the client leaves first,
+        //so the end of the async request releases the permit too, whichever comes first
+        final AtomicBoolean held = new AtomicBoolean(true);
+        final Runnable release = () -> {
+            if (held.compareAndSet(true, false))
+                exports.release();
+        };
+        releaseOnAsyncCompletion(release);
+
+        return outputStream -> {
+            try {
+                export.writeTo(outputStream);
+            } finally {
+                release.run();
+            }
+        };
+    }
+
+    private void releaseOnAsyncCompletion(final Runnable release) {
+
+        final RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes))
+            return;
+
+        WebAsyncUtils.getAsyncManager(((ServletRequestAttributes) attributes).getRequest())
+                .registerCallableInterceptor(release, new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void afterCompletion(final NativeWebRequest request, final Callable<T> task) {
+                        release.run();
+                    }
+                });
+    }
+
+    //the stream needs an open transaction until the last row is written
+    @Transactional(readOnly = true)
+    public void exportMeetings(final OutputStream outputStream) throws IOException {
+
+        try (Stream<MeetingView> meetings = meetingRepository.streamAllViews()) {
+            writeLines(meetings, outputStream);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public void exportBookings(final OutputStream outputStream) throws IOException {
+
+        try (Stream<MeetingBookingView> bookings = meetingBookingRepository.streamAllViews()) {
+            writeLines(bookings, outputStream);
+        }
+    }
+
+    private void writeLines(final Stream<?> rows, final OutputStream outputStream) throws IOException {
+
+        //one json document per line, the response is flushed in chunks instead of after every row
+        final ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        final JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+        int written = 0;
+        final Iterator<?> iterator = rows.iterator();
+        while (iterator.hasNext()) {
+            writer.writeValue(generator, iterator.next());
+            generator.writeRaw('\n');
+
+            if (++written % FLUSH_ROWS == 0)
+                generator.flush();
+        }
+
+        generator.close();
+    }
+}
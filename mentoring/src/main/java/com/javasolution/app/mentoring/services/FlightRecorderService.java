@@ -0,0 +1,97 @@
+package com.javasolution.app.mentoring.services;
+
+import com.javasolution.app.mentoring.exceptions.RecordingStateException;
+import com.javasolution.app.mentoring.jfr.*;
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.List;
+
+//flight recordings started and stopped on demand, nothing is recorded while none is running
+@Service
+public class FlightRecorderService {
+
+    private static final List<Class<? extends Event>> MENTORING_EVENTS = List.of(
+            BookingAttemptEvent.class,
+            CollisionCheckEvent.class,
+            EmailSendEvent.class,
+            JwtValidateEvent.class,
+            PasswordHashEvent.class
+    );
+
+    private final Duration maxAge;
+    private final long maxSize;
+
+    private Recording recording;
+
+    public FlightRecorderService(@Value("${mentoring.jfr.max-age:30m}") final Duration maxAge,
+                                 @Value("${mentoring.jfr.max-size:104857600}") final long maxSize) {
+        this.maxAge = maxAge;
+        this.maxSize = maxSize;
+    }
+
+    //default has about one percent overhead, profile samples more often
+    public synchronized String start(final String settings) {
+
+        if (recording != null)
+            throw new RecordingStateException("Recording: '" + recording.getName() + "' is already running");
+
+        final Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration(settings);
+        } catch (final IOException | ParseException ex) {
+            throw new RecordingStateException("Recording settings: '" + settings + "' were not found");
+        }
+
+        final Recording newRecording = new Recording(configuration);
+        newRecording.setName("mentoring-" + System.currentTimeMillis());
+        for (Class<? extends Event> event : MENTORING_EVENTS)
+            newRecording.enable(event).withoutThreshold();
+
+        //a recording which is never stopped keeps only its last part
+        newRecording.setToDisk(true);
+        newRecording.setMaxAge(maxAge);
+        newRecording.setMaxSize(maxSize);
+        newRecording.start();
+
+        recording = newRecording;
+        return recording.getName();
+    }
+
+    //the recording is detached here and closed once its data is written out
+    public synchronized Recording stop() {
+
+        if (recording == null)
+            throw new RecordingStateException("There is no running recording");
+
+        final Recording stoppedRecording = recording;
+        recording = null;
+        stoppedRecording.stop();
+
+        return stoppedRecording;
+    }
+
+    public void write(final Recording stoppedRecording, final OutputStream outputStream) throws IOException {
+
+        try (stoppedRecording; InputStream data = stoppedRecording.getStream(null, null)) {
+            //a recording without any chunk has no stream
+            if (data != null)
+                data.transferTo(outputStream);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (recording != null)
+            recording.close();
+    }
+}
@@ -3,19 +3,19 @@ package com.javasolution.app.mentoring.services;
 import com.javasolution.app.mentoring.entities.Meeting;
 import com.javasolution.app.mentoring.entities.MeetingBooking;
 import com.javasolution.app.mentoring.entities.User;
-import com.javasolution.app.mentoring.entities.UserRole;
+import com.javasolution.app.mentoring.events.MeetingChangedEvent;
 import com.javasolution.app.mentoring.exceptions.*;
+import com.javasolution.app.mentoring.jfr.BookingAttemptEvent;
+import com.javasolution.app.mentoring.projections.MeetingBookingView;
 import com.javasolution.app.mentoring.repositories.MeetingBookingRepository;
 import com.javasolution.app.mentoring.repositories.MeetingRepository;
-import com.javasolution.app.mentoring.repositories.UserRepository;
 import lombok.AllArgsConstructor;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import javax.mail.MessagingException;
-import javax.mail.internet.MimeMessage;
-import java.security.Principal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -25,22 +25,16 @@ import java.util.Optional;
 public class MeetingBookingService {
 
     private final MeetingService meetingService;
-    private final UserRepository userRepository;
     private final MeetingBookingRepository meetingBookingRepository;
-    private final JavaMailSender javaMailSender;
+    private final EmailOutboxService emailOutboxService;
     private final MeetingRepository meetingRepository;
+    private final MeetingCalendar meetingCalendar;
+    private final ApplicationEventPublisher eventPublisher;
+    private final StageMetrics stageMetrics;
 
-    private void sendInfoAboutBookedMeeting(final String userMail,
-                                            final Meeting meeting,
-                                            final String info,
-                                            final String subject) throws MessagingException {
+    static String bookedMeetingMessage(final Meeting meeting, final String info) {
 
-        final MimeMessage mimeMessage = javaMailSender.createMimeMessage();
-        final MimeMessageHelper mimeMessageHelper = new MimeMessageHelper(mimeMessage, true);
-        mimeMessageHelper.setTo(userMail);
-        mimeMessageHelper.setSubject(subject);
-
-        final String message = "<head>" +
+        return "<head>" +
                 "<style type=\"text/css\">" +
                 ".red { color: #f00; }" +
                 "</style>" +
@@ -52,119 +46,162 @@ public class MeetingBookingService {
                 "<div>" +
                 "<b>Meeting time:</b>" + meeting.getMeetingStartTime() + "-" + meeting.getMeetingEndTime() +
                 "</div>";
+    }
 
-        mimeMessage.setContent(message, "text/html; charset=utf-8");
-        javaMailSender.send(mimeMessage);
+    private void sendInfoAboutBookedMeeting(final String userMail,
+                                            final Meeting meeting,
+                                            final String info,
+                                            final String subject) {
+
+        emailOutboxService.enqueue(userMail, subject, bookedMeetingMessage(meeting, info));
     }
 
-    public MeetingBooking bookingMeeting(final String meetingId, final Principal principal) {
+    //the event ends before the transaction commits, the commit itself is not part of it
+    @Transactional
+    public MeetingBooking bookingMeeting(final String meetingId, final User student) {
 
-        //check if meeting exists
-        final Meeting meeting = meetingService.findMeeting(meetingId);
-        if (meeting == null)
-            throw new MeetingNotFoundException("Meeting with ID: '" + meetingId + "' was not found");
-        else
-            meeting.setBooked(true);
-
-        //check if meeting booked
-        final Optional<MeetingBooking> databaseMeetingBooking = meetingBookingRepository.findByMeetingId(meeting.getId());
-        if (databaseMeetingBooking.isPresent())
+        final BookingAttemptEvent event = new BookingAttemptEvent();
+        event.begin();
+        event.studentId = student.getId();
+
+        try {
+            final long id = MeetingService.parseMeetingId(meetingId);
+            event.meetingId = id;
+
+            final MeetingBooking meetingBooking = bookingMeeting(id, meetingId, student);
+            event.bookingId = meetingBooking.getId();
+            event.outcome = "booked";
+
+            return meetingBooking;
+        } catch (final MeetingNotFoundException ex) {
+            event.outcome = "not_found";
+            throw ex;
+        } catch (final MeetingBookingAlreadyExistsException ex) {
+            event.outcome = "already_booked";
+            throw ex;
+        } catch (final InvalidCastException ex) {
+            event.outcome = "invalid_id";
+            throw ex;
+        } catch (final RuntimeException ex) {
+            event.outcome = "error";
+            throw ex;
+        } finally {
+            event.commit();
+        }
+    }
+
+    private MeetingBooking bookingMeeting(final long id, final String meetingId, final User student) {
+
+        //claim the meeting, only one request can switch it from free to booked
+        if (meetingRepository.claimMeeting(id, LocalDateTime.now()) == 0) {
+
+            //check if meeting exists
+            if (!meetingRepository.existsById(id))
+                throw new MeetingNotFoundException("Meeting with ID: '" + meetingId + "' was not found");
+
+            stageMetrics.bookingConflict();
             throw new MeetingBookingAlreadyExistsException("Meeting with ID: '" + meetingId + "' is already booked");
+        }
 
-        //find student
-        final User student = userRepository.findByEmail(principal.getName());
+        final Meeting meeting = meetingService.findMeeting(meetingId);
 
-        //create meetingBooking
+        //create meetingBooking, the unique meeting_id rejects a booking left over for the meeting
         final MeetingBooking meetingBooking = new MeetingBooking();
         meetingBooking.setMeeting(meeting);
         meetingBooking.setStudent(student);
 
-
-        //check if mentor exists
-        final User mentor = userRepository.findByUserRole(UserRole.MENTOR);
-        if (mentor == null) throw new MentorNotFoundException("Mentor can not be found");
+        final MeetingBooking savedMeetingBooking;
 
         try {
-
-            //send email to student
-            sendInfoAboutBookedMeeting(principal.getName(),
-                    meeting,
-                    "Thank you for booking meeting!",
-                    "Booked meeting!");
-
-            //send email to mentor
-            sendInfoAboutBookedMeeting(mentor.getEmail(),
-                    meeting,
-                    "Student: " + principal.getName() + " booked meeting!",
-                    "Booked meeting!");
-
-        } catch (MessagingException ex) {
-            throw new UnableSendEmailException("Something went wrong. Please try again later");
+            savedMeetingBooking = stageMetrics.record(StageMetrics.Stage.SAVE, () -> meetingBookingRepository.save(meetingBooking));
+        } catch (final DataIntegrityViolationException ex) {
+            stageMetrics.bookingConflict();
+            throw new MeetingBookingAlreadyExistsException("Meeting with ID: '" + meetingId + "' is already booked");
         }
 
-        meetingRepository.save(meeting);
-        return meetingBookingRepository.save(meetingBooking);
+        //only a saved booking reaches the calendar, and only once it is committed
+        meetingCalendar.setBooked(meeting.getMentor().getId(),
+                meeting.getMeetingDate(),
+                meeting.getMeetingStartTime(),
+                meeting.getMeetingEndTime(),
+                true);
+        eventPublisher.publishEvent(MeetingChangedEvent.of(MeetingChangedEvent.Type.BOOKED, meeting, true));
+
+        //send email to student
+        sendInfoAboutBookedMeeting(student.getEmail(),
+                meeting,
+                "Thank you for booking meeting!",
+                "Booked meeting!");
+
+        //send email to the mentor of the meeting
+        sendInfoAboutBookedMeeting(meeting.getMentor().getEmail(),
+                meeting,
+                "Student: " + student.getEmail() + " booked meeting!",
+                "Booked meeting!");
+
+        return savedMeetingBooking;
     }
 
-    protected MeetingBooking findMeetingBooking(final String bookingId) {
-
-        final long id;
+    public static long parseBookingId(final String bookingId) {
 
         try {
-            id = Long.parseLong(bookingId);
+            return Long.parseLong(bookingId);
         } catch (NumberFormatException ex) {
             throw new InvalidCastException("Meeting booking id have to be long type");
         }
+    }
+
+    protected MeetingBooking findMeetingBooking(final String bookingId) {
 
-        final Optional<MeetingBooking> meetingBooking = meetingBookingRepository.findById(id);
+        final long id = parseBookingId(bookingId);
+
+        final Optional<MeetingBooking> meetingBooking = stageMetrics.record(StageMetrics.Stage.DB_LOOKUP,
+                () -> meetingBookingRepository.findById(id));
 
         return meetingBooking.orElse(null);
     }
 
-    public void cancelBooking(final String bookingId, final Principal principal) {
+    @Transactional
+    public void cancelBooking(final String bookingId, final User student) {
 
         //check if meeting booking exists
         final MeetingBooking meetingBooking = findMeetingBooking(bookingId);
         if (meetingBooking == null)
             throw new MeetingBookingNotFoundException("Meeting booking with ID: '" + bookingId + "' was not found");
 
-        final User student = userRepository.findByEmail(principal.getName());
-
         //check if owner
         if (!meetingBooking.getStudent().getId().equals(student.getId()))
             throw new NotOwnerException("You are not owner the meeting booking");
 
-        //check if mentor exists
-        final User mentor = userRepository.findByUserRole(UserRole.MENTOR);
-        if (mentor == null) throw new MentorNotFoundException("Mentor can not be found");
+        //delete the booking, only one of concurrent cancellations removes the row
+        if (meetingBookingRepository.deleteBookingById(meetingBooking.getId()) == 0)
+            throw new MeetingBookingNotFoundException("Meeting booking with ID: '" + bookingId + "' was not found");
 
         final Meeting meeting = meetingBooking.getMeeting();
-        meeting.setBooked(false);
-
-        try {
-
-            //send email to student
-            sendInfoAboutBookedMeeting(principal.getName(),
-                    meeting,
-                    "You have successfully canceled the meeting!",
-                    "Cancellation of the meeting!");
-
-            //send email to mentor
-            sendInfoAboutBookedMeeting(mentor.getEmail(),
-                    meeting,
-                    "Student: " + principal.getName() + " canceled the meeting!",
-                    "Cancellation of the meeting!");
-
-        } catch (final MessagingException ex) {
-            throw new UnableSendEmailException("Something went wrong. Please try again later");
-        }
-
-        meetingRepository.save(meeting);
-        meetingBookingRepository.delete(meetingBooking);
+        meetingRepository.releaseMeeting(meeting.getId(), LocalDateTime.now());
+        meetingCalendar.setBooked(meeting.getMentor().getId(),
+                meeting.getMeetingDate(),
+                meeting.getMeetingStartTime(),
+                meeting.getMeetingEndTime(),
+                false);
+
+        eventPublisher.publishEvent(MeetingChangedEvent.of(MeetingChangedEvent.Type.CANCELLED, meeting, false));
+
+        //send email to student
+        sendInfoAboutBookedMeeting(student.getEmail(),
+                meeting,
+                "You have successfully canceled the meeting!",
+                "Cancellation of the meeting!");
+
+        //send email to the mentor of the meeting
+        sendInfoAboutBookedMeeting(meeting.getMentor().getEmail(),
+                meeting,
+                "Student: " + student.getEmail() + " canceled the meeting!",
+                "Cancellation of the meeting!");
     }
 
-    public Iterable<MeetingBooking> getAllBookings() {
-        return meetingBookingRepository.findAll();
+    public List<MeetingBookingView> getAllBookings() {
+        return meetingBookingRepository.findAllViews();
     }
 
     public MeetingBooking getBooking(final String bookingId) {
@@ -177,23 +214,21 @@ public class MeetingBookingService {
         return meetingBooking;
     }
 
-    public MeetingBooking getMyBooking(final String bookingId, final Principal principal) {
+    public MeetingBooking getMyBooking(final String bookingId, final User student) {
 
         final MeetingBooking meetingBooking = findMeetingBooking(bookingId);
 
         if (meetingBooking == null)
             throw new MeetingBookingNotFoundException("Meeting booking with ID: '" + bookingId + "' was not found");
 
-        if (!meetingBooking.getStudent().getEmail().equals(principal.getName()))
+        if (!meetingBooking.getStudent().getId().equals(student.getId()))
             throw new NotOwnerException("You are not owner the meeting booking");
 
         return meetingBooking;
     }
 
-    public Iterable<MeetingBooking> getAllMyBookings(final Principal principal) {
-
-        final User student = userRepository.findByEmail(principal.getName());
+    public List<MeetingBookingView> getAllMyBookings(final User student) {
 
-        return meetingBookingRepository.findAllByStudent(student);
+        return meetingBookingRepository.findAllViewsByStudent(student);
     }
 }
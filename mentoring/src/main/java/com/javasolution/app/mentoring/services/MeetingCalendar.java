@@ -0,0 +1,173 @@
+package com.javasolution.app.mentoring.services;
+
+import com.javasolution.app.mentoring.projections.MeetingSlot;
+import com.javasolution.app.mentoring.responses.CalendarDayResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.UnaryOperator;
+
+@Component
+public class MeetingCalendar {
+
+    //slots of every mentor by day, the mentor maps are replaced as a whole on change
+    private final ConcurrentMap<LocalDate, Map<Long, DaySlots>> days = new ConcurrentHashMap<>();
+
+    private static void afterCommit(final Runnable action) {
+
+        //changes of a rolled back transaction never reach the calendar
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static Map<LocalDate, Map<Long, DaySlots>> index(final Iterable<? extends MeetingSlot> meetings) {
+
+        final Map<LocalDate, Map<Long, DaySlots>> index = new HashMap<>();
+
+        for (MeetingSlot meeting : meetings) {
+            final int fromSlot = DaySlots.firstSlot(meeting.getMeetingStartTime());
+            final int toSlot = DaySlots.endSlot(meeting.getMeetingEndTime());
+            final boolean booked = Boolean.TRUE.equals(meeting.getBooked());
+
+            index.computeIfAbsent(meeting.getMeetingDate(), date -> new HashMap<>())
+                    .compute(meeting.getMentorId(),
+                            (mentorId, slots) -> (slots == null ? DaySlots.EMPTY : slots).withMeeting(fromSlot, toSlot, booked));
+        }
+
+        return index;
+    }
+
+    private void update(final Long mentorId, final LocalDate date, final UnaryOperator<DaySlots> change) {
+        days.compute(date, (day, mentors) -> {
+            final Map<Long, DaySlots> updatedMentors = mentors == null ? new HashMap<>() : new HashMap<>(mentors);
+            final DaySlots updated = change.apply(updatedMentors.getOrDefault(mentorId, DaySlots.EMPTY));
+
+            if (updated.isEmpty()) updatedMentors.remove(mentorId);
+            else updatedMentors.put(mentorId, updated);
+
+            return updatedMentors.isEmpty() ? null : Collections.unmodifiableMap(updatedMentors);
+        });
+    }
+
+    public void putMeeting(final Long mentorId,
+                           final LocalDate date,
+                           final LocalTime startTime,
+                           final LocalTime endTime,
+                           final boolean booked) {
+
+        final int fromSlot = DaySlots.firstSlot(startTime);
+        final int toSlot = DaySlots.endSlot(endTime);
+
+        afterCommit(() -> update(mentorId, date, slots -> slots.withMeeting(fromSlot, toSlot, booked)));
+    }
+
+    public void removeMeeting(final Long mentorId, final LocalDate date, final LocalTime startTime, final LocalTime endTime) {
+
+        final int fromSlot = DaySlots.firstSlot(startTime);
+        final int toSlot = DaySlots.endSlot(endTime);
+
+        afterCommit(() -> update(mentorId, date, slots -> slots.withoutMeeting(fromSlot, toSlot)));
+    }
+
+    public void setBooked(final Long mentorId,
+                          final LocalDate date,
+                          final LocalTime startTime,
+                          final LocalTime endTime,
+                          final boolean booked) {
+
+        final int fromSlot = DaySlots.firstSlot(startTime);
+        final int toSlot = DaySlots.endSlot(endTime);
+
+        afterCommit(() -> update(mentorId, date, slots -> slots.withBooked(fromSlot, toSlot, booked)));
+    }
+
+    //a single synchronization for all slots released or booked by one statement
+    public void setBooked(final List<? extends MeetingSlot> slots, final boolean booked) {
+        afterCommit(() -> {
+            for (MeetingSlot slot : slots)
+                update(slot.getMentorId(), slot.getMeetingDate(), daySlots -> daySlots.withBooked(
+                        DaySlots.firstSlot(slot.getMeetingStartTime()), DaySlots.endSlot(slot.getMeetingEndTime()), booked));
+        });
+    }
+
+    //sums the slots of all mentors, the day is full when no mentor has a free slot
+    public CalendarDayResponse describeDay(final LocalDate date) {
+
+        int meetings = 0;
+        int bookedMeetings = 0;
+        int freeMeetings = 0;
+
+        for (DaySlots slots : days.getOrDefault(date, Map.of()).values()) {
+            meetings += slots.existingSlots();
+            bookedMeetings += slots.bookedSlots();
+            freeMeetings += slots.freeSlots();
+        }
+
+        return new CalendarDayResponse(date, meetings, bookedMeetings, freeMeetings, meetings > 0 && freeMeetings == 0);
+    }
+
+    public void load(final Iterable<? extends MeetingSlot> meetings) {
+        final Map<LocalDate, Map<Long, DaySlots>> index = index(meetings);
+        days.clear();
+        index.forEach((date, mentors) -> days.put(date, Collections.unmodifiableMap(mentors)));
+    }
+
+    //compares the calendar with the database state and returns the days that differ, nothing is changed
+    public List<LocalDate> findInconsistentDates(final Iterable<? extends MeetingSlot> meetings) {
+        return inconsistentDates(index(meetings));
+    }
+
+    //replaces the days that differ from the database state and returns them
+    public List<LocalDate> repair(final Iterable<? extends MeetingSlot> meetings) {
+
+        final Map<LocalDate, Map<Long, DaySlots>> index = index(meetings);
+        final List<LocalDate> repairedDates = inconsistentDates(index);
+
+        for (LocalDate date : repairedDates) {
+            final Map<Long, DaySlots> expected = index.get(date);
+
+            if (expected == null) days.remove(date);
+            else days.put(date, Collections.unmodifiableMap(expected));
+        }
+
+        return repairedDates;
+    }
+
+    private List<LocalDate> inconsistentDates(final Map<LocalDate, Map<Long, DaySlots>> index) {
+
+        final Set<LocalDate> dates = new HashSet<>(index.keySet());
+        dates.addAll(days.keySet());
+
+        final List<LocalDate> inconsistentDates = new ArrayList<>();
+
+        for (LocalDate date : dates) {
+            final Map<Long, DaySlots> expected = index.get(date);
+
+            if (!days.getOrDefault(date, Map.of()).equals(expected == null ? Map.of() : expected))
+                inconsistentDates.add(date);
+        }
+
+        inconsistentDates.sort(null);
+        return inconsistentDates;
+    }
+}
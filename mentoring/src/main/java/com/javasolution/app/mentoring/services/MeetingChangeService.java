@@ -0,0 +1,77 @@
+package com.javasolution.app.mentoring.services;
+
+import com.javasolution.app.mentoring.entities.MeetingTombstone;
+import com.javasolution.app.mentoring.projections.MeetingView;
+import com.javasolution.app.mentoring.repositories.MeetingRepository;
+import com.javasolution.app.mentoring.repositories.MeetingTombstoneRepository;
+import com.javasolution.app.mentoring.responses.MeetingChangesResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+//changes of the not booked meetings since a watermark issued by the server
+@Service
+public class MeetingChangeService {
+
+    private final MeetingRepository meetingRepository;
+    private final MeetingTombstoneRepository meetingTombstoneRepository;
+    private final Duration lag;
+    private final Duration retention;
+
+    public MeetingChangeService(final MeetingRepository meetingRepository,
+                                final MeetingTombstoneRepository meetingTombstoneRepository,
+                                @Value("${mentoring.meetings.changes.lag:5s}") final Duration lag,
+                                @Value("${mentoring.meetings.changes.retention:7d}") final Duration retention) {
+        this.meetingRepository = meetingRepository;
+        this.meetingTombstoneRepository = meetingTombstoneRepository;
+        this.lag = lag;
+        this.retention = retention;
+    }
+
+    //joins the transaction of the caller, so the tombstone exists only if the meeting is deleted
+    public void recordDeletion(final Long meetingId) {
+        meetingTombstoneRepository.save(new MeetingTombstone(meetingId));
+    }
+
+    @Transactional(readOnly = true)
+    public MeetingChangesResponse getChanges(final LocalDateTime since) {
+
+        final LocalDateTime now = LocalDateTime.now();
+
+        //timestamps are taken before commit, the watermark lags behind so slow transactions are not skipped
+        final LocalDateTime watermark = now.minus(lag);
+
+        //tombstones older than the retention are purged, such clients have to reload the whole list
+        if (since == null || since.isBefore(now.minus(retention)))
+            return new MeetingChangesResponse(watermark, true, List.of(), List.of());
+
+        if (!since.isBefore(watermark))
+            return new MeetingChangesResponse(since, false, List.of(), List.of());
+
+        final List<MeetingView> meetings = new ArrayList<>();
+        final List<Long> removedMeetingIds = new ArrayList<>(
+                meetingTombstoneRepository.findMeetingIdsDeletedBetween(since, watermark));
+
+        //a booked meeting leaves the not booked list, a cancelled booking brings it back
+        for (MeetingView meeting : meetingRepository.findChangedBetween(since, watermark)) {
+            if (meeting.getBooked())
+                removedMeetingIds.add(meeting.getId());
+            else
+                meetings.add(meeting);
+        }
+
+        return new MeetingChangesResponse(watermark, false, meetings, removedMeetingIds);
+    }
+
+    @Transactional
+    @Scheduled(fixedDelayString = "${mentoring.meetings.changes.purge-interval:3600000}")
+    public void purgeTombstones() {
+        meetingTombstoneRepository.deleteAllDeletedBefore(LocalDateTime.now().minus(retention));
+    }
+}
@@ -0,0 +1,46 @@
+package com.javasolution.app.mentoring.services;
+
+import com.javasolution.app.mentoring.exceptions.InvalidCastException;
+import com.javasolution.app.mentoring.projections.MeetingView;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Base64;
+
+//position of the last meeting of a page in (meetingDate, meetingStartTime, id) order
+@Getter
+@AllArgsConstructor
+class MeetingCursor {
+
+    private static final String SEPARATOR = "|";
+
+    private final LocalDate meetingDate;
+
+    private final LocalTime meetingStartTime;
+
+    private final Long id;
+
+    static MeetingCursor of(final MeetingView meeting) {
+        return new MeetingCursor(meeting.getMeetingDate(), meeting.getMeetingStartTime(), meeting.getId());
+    }
+
+    String encode() {
+        final String cursor = meetingDate + SEPARATOR + meetingStartTime + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static MeetingCursor decode(final String cursor) {
+
+        try {
+            final String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            final String[] parts = decoded.split("\\" + SEPARATOR);
+
+            return new MeetingCursor(LocalDate.parse(parts[0]), LocalTime.parse(parts[1]), Long.parseLong(parts[2]));
+        } catch (final RuntimeException ex) {
+            throw new InvalidCastException("Cursor have to be taken from the previous page");
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.javasolution.app.mentoring.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.javasolution.app.mentoring.events.MeetingChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+//pushes slot changes to sse subscribers, idle connections hold no thread, only a few senders write the events
+@Service
+public class MeetingEventPublisher {
+
+    private static final int SENDERS = 4;
+    private static final int MAX_STALLED_SENDERS = 16;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final Set<Subscriber> sending = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolExecutor senderExecutor = new ThreadPoolExecutor(SENDERS, SENDERS + MAX_STALLED_SENDERS,
+            60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+    private final AtomicLong eventId = new AtomicLong();
+    private int stalledSenders;
+
+    private final ObjectMapper objectMapper;
+    private final int bufferSize;
+    private final long timeoutMillis;
+    private final long sendTimeoutNanos;
+    private final Counter droppedCounter;
+
+    public MeetingEventPublisher(final ObjectMapper objectMapper,
+                                 @Value("${mentoring.meetings.stream.buffer-size:64}") final int bufferSize,
+                                 @Value("${mentoring.meetings.stream.timeout:1800000}") final long timeoutMillis,
+                                 @Value("${mentoring.meetings.stream.send-timeout:5s}") final Duration sendTimeout,
+                                 final MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.bufferSize = bufferSize;
+        this.timeoutMillis = timeoutMillis;
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+
+        this.droppedCounter = Counter.builder("meetings.stream.dropped")
+                .description("Subscribers disconnected because they did not keep up with the events")
+                .register(meterRegistry);
+        Gauge.builder("meetings.stream.subscribers", subscribers, Set::size)
+                .description("Connected subscribers of the meeting stream")
+                .register(meterRegistry);
+    }
+
+    public SseEmitter subscribe() {
+        return subscribe(new SseEmitter(timeoutMillis));
+    }
+
+    public SseEmitter subscribe(final SseEmitter emitter) {
+
+        final Subscriber subscriber = new Subscriber(emitter);
+
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(ex -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+
+        return emitter;
+    }
+
+    //only committed changes are pushed, a rolled back booking is never seen by the clients
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMeetingChanged(final MeetingChangedEvent event) {
+
+        if (subscribers.isEmpty()) return;
+
+        //serialized once for every subscriber
+        final String data;
+        try {
+            data = objectMapper.writeValueAsString(event);
+        } catch (final JsonProcessingException ex) {
+            throw new IllegalStateException("Meeting event can not be serialized", ex);
+        }
+
+        final String id = String.valueOf(eventId.incrementAndGet());
+        for (Subscriber subscriber : subscribers)
+            subscriber.offer(SseEmitter.event().id(id).name("meeting").data(data));
+    }
+
+    //detects closed connections, which are noticed only on a write
+    @Scheduled(fixedDelayString = "${mentoring.meetings.stream.heartbeat-interval:30000}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers)
+            subscriber.offer(SseEmitter.event().comment("heartbeat"));
+    }
+
+    //a write to a peer which stopped reading blocks until the socket times out, such a subscriber is dropped
+    @Scheduled(fixedDelayString = "${mentoring.meetings.stream.send-check-interval:1000}")
+    public void dropStalledSubscribers() {
+
+        final long now = System.nanoTime();
+        for (Subscriber subscriber : sending)
+            subscriber.stallIfExpired(now);
+    }
+
+    //a blocked sender is replaced by an extra thread, so the other subscribers keep getting their events
+    private synchronized void senderStalled() {
+        stalledSenders++;
+        senderExecutor.setCorePoolSize(SENDERS + Math.min(stalledSenders, MAX_STALLED_SENDERS));
+    }
+
+    private synchronized void stalledSenderReleased() {
+        stalledSenders--;
+        senderExecutor.setCorePoolSize(SENDERS + Math.min(stalledSenders, MAX_STALLED_SENDERS));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senderExecutor.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    private class Subscriber {
+
+        private final SseEmitter emitter;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> events = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean completed = new AtomicBoolean();
+        private volatile boolean closing;
+
+        //guarded by the subscriber, the watchdog and the sender decide about a stalled write together
+        private long sendStartedAt;
+        private boolean replaced;
+
+        private Subscriber(final SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        private void offer(final SseEmitter.SseEventBuilder event) {
+
+            //a subscriber which can not keep up is disconnected, the client reconnects and reloads the slots
+            if (!events.offer(event)) {
+                drop();
+                return;
+            }
+
+            schedule();
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true))
+                senderExecutor.execute(this::send);
+        }
+
+        private void send() {
+
+            try {
+                SseEmitter.SseEventBuilder event;
+                while (!closing && (event = events.poll()) != null) {
+                    startSending();
+                    try {
+                        emitter.send(event);
+                    } finally {
+                        finishSending();
+                    }
+                }
+
+                //completing waits for a write in progress, only the sender itself never has to wait
+                if (closing && completed.compareAndSet(false, true))
+                    emitter.complete();
+            } catch (final IOException | IllegalStateException ex) {
+                subscribers.remove(this);
+                return;
+            } finally {
+                scheduled.set(false);
+            }
+
+            //an event offered or a drop requested while the sender was finishing
+            if (closing ? !completed.get() : !events.isEmpty())
+                schedule();
+        }
+
+        private synchronized void startSending() {
+            sendStartedAt = System.nanoTime();
+            sending.add(this);
+        }
+
+        private synchronized void finishSending() {
+            sendStartedAt = 0;
+            sending.remove(this);
+
+            if (replaced) {
+                replaced = false;
+                stalledSenderReleased();
+            }
+        }
+
+        //the write fails once the socket times out, the emitter then completes with the error
+        private synchronized void stallIfExpired(final long now) {
+
+            if (replaced || sendStartedAt == 0 || now - sendStartedAt <= sendTimeoutNanos) return;
+
+            replaced = true;
+            senderStalled();
+            drop();
+        }
+
+        private void drop() {
+            if (subscribers.remove(this)) {
+                droppedCounter.increment();
+                events.clear();
+                closing = true;
+                schedule();
+            }
+        }
+    }
+}
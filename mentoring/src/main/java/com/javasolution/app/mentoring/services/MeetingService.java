@@ -3,37 +3,66 @@ package com.javasolution.app.mentoring.services;
 
 import com.javasolution.app.mentoring.entities.Meeting;
 import com.javasolution.app.mentoring.entities.User;
-import com.javasolution.app.mentoring.entities.UserRole;
+import com.javasolution.app.mentoring.events.MeetingChangedEvent;
 import com.javasolution.app.mentoring.exceptions.*;
+import com.javasolution.app.mentoring.jfr.CollisionCheckEvent;
+import com.javasolution.app.mentoring.projections.MeetingView;
 import com.javasolution.app.mentoring.repositories.MeetingRepository;
-import com.javasolution.app.mentoring.repositories.UserRepository;
+import com.javasolution.app.mentoring.responses.CalendarConsistencyResponse;
+import com.javasolution.app.mentoring.responses.CalendarDayResponse;
+import com.javasolution.app.mentoring.responses.CursorPage;
 import lombok.AllArgsConstructor;
+import org.hibernate.Hibernate;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 
 import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 
 @Service
 @AllArgsConstructor
 public class MeetingService {
 
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int MAX_CALENDAR_DAYS = 366;
+
     private final MeetingRepository meetingRepository;
-    private final UserRepository userRepository;
+    private final MeetingCalendar meetingCalendar;
+    private final MeetingChangeService meetingChangeService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final StageMetrics stageMetrics;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadCalendar() {
+        meetingCalendar.load(meetingRepository.findAllSlotsBy());
+    }
 
-    private List<Meeting> checkCollision(final List<Meeting> databaseMeetings, final List<Meeting> meetings) {
+    static List<Meeting> checkCollision(final List<Meeting> databaseMeetings, final List<Meeting> meetings) {
         final List<Meeting> collisionMeetings = new ArrayList<>();
 
         for (Meeting meeting : meetings) {
             for (Meeting databaseMeeting : databaseMeetings) {
 
-                if (meeting.getMeetingStartTime().equals(databaseMeeting.getMeetingStartTime())
-                        && meeting.getMeetingEndTime().equals(databaseMeeting.getMeetingEndTime())
-                        && meeting.getMeetingDate().equals(databaseMeeting.getMeetingDate())) {
+                //half-open intervals overlap, so partial overlaps are collisions too
+                if (meeting.getMeetingDate().equals(databaseMeeting.getMeetingDate())
+                        && meeting.getMeetingStartTime().isBefore(databaseMeeting.getMeetingEndTime())
+                        && meeting.getMeetingEndTime().isAfter(databaseMeeting.getMeetingStartTime())) {
                     collisionMeetings.add(meeting);
+                    break;
                 }
             }
         }
@@ -41,7 +70,7 @@ public class MeetingService {
         return collisionMeetings;
     }
 
-    public List<Meeting> addMeeting(final Meeting meeting) {
+    static List<Meeting> splitIntoQuarters(final Meeting meeting, final User mentor) {
 
         final Duration timeBetweenStartMeetingAndEnd = Duration.between(
                 meeting.getMeetingStartTime(),
@@ -49,14 +78,9 @@ public class MeetingService {
         );
 
         final long seconds = timeBetweenStartMeetingAndEnd.getSeconds();
-        final List<Meeting> meetings = new ArrayList();
         final int meetingsNumber = (int) seconds / 900;
+        final List<Meeting> meetings = new ArrayList<>(meetingsNumber);
 
-        //check if a mentor exists
-        final User mentor = userRepository.findByUserRole(UserRole.MENTOR);
-        if (mentor == null) throw new MentorNotFoundException("Mentor can not be found");
-
-        //division into quarters of hour
         for (int i = 0; i < meetingsNumber; i++) {
             final Meeting newMeeting = new Meeting();
             newMeeting.setMeetingDate(meeting.getMeetingDate());
@@ -66,55 +90,120 @@ public class MeetingService {
             meetings.add(newMeeting);
         }
 
-        //check collisions
-        final List<Meeting> collisionMeetings = checkCollision((List<Meeting>) meetingRepository.findAll(), meetings);
+        return meetings;
+    }
+
+    //the database decides, the calendar of this instance misses slots added through other instances
+    private List<Meeting> findOverlappingMeetings(final Meeting meeting, final User mentor) {
+        return stageMetrics.record(StageMetrics.Stage.DB_LOOKUP, () -> meetingRepository.findAllOverlapping(
+                mentor,
+                meeting.getMeetingDate(),
+                meeting.getMeetingStartTime(),
+                meeting.getMeetingEndTime()
+        ));
+    }
+
+    private List<Meeting> findCollisions(final User mentor,
+                                         final List<Meeting> meetings,
+                                         final Supplier<List<Meeting>> databaseMeetingsLookup) {
+
+        final CollisionCheckEvent event = new CollisionCheckEvent();
+        event.begin();
+        event.mentorId = mentor.getId();
+        event.meetings = meetings.size();
+
+        try {
+            final long lookupStart = System.nanoTime();
+            final List<Meeting> databaseMeetings = databaseMeetingsLookup.get();
+            event.lookupDuration = System.nanoTime() - lookupStart;
+            event.databaseMeetings = databaseMeetings.size();
+
+            final List<Meeting> collisionMeetings = stageMetrics.record(StageMetrics.Stage.COLLISION_CHECK,
+                    () -> checkCollision(databaseMeetings, meetings));
+            event.collisions = collisionMeetings.size();
+            event.outcome = collisionMeetings.isEmpty() ? "free" : "collision";
+
+            return collisionMeetings;
+        } catch (final RuntimeException ex) {
+            event.outcome = "error";
+            throw ex;
+        } finally {
+            event.commit();
+        }
+    }
+
+    @Transactional
+    public List<Meeting> addMeeting(final Meeting meeting, final User mentor) {
+
+        //division into quarters of hour
+        final List<Meeting> meetings = splitIntoQuarters(meeting, mentor);
+
+        //check collisions only against the mentor's slots of the affected day
+        final List<Meeting> collisionMeetings = findCollisions(mentor, meetings,
+                () -> findOverlappingMeetings(meeting, mentor));
 
         //there are collisions
         if (!collisionMeetings.isEmpty())
             throw new MeetingsAlreadyExistException("Meetings already exist", collisionMeetings);
 
-        //there are no collisions
-        for (Meeting meetingToSave : meetings)
-            meetingRepository.save(meetingToSave);
+        //there are no collisions, slots are written in jdbc batches
+        stageMetrics.record(StageMetrics.Stage.SAVE, () -> meetingRepository.saveAll(meetings));
+        eventPublisher.publishEvent(MeetingChangedEvent.of(MeetingChangedEvent.Type.ADDED, meetings, false));
 
         return meetings;
     }
 
-    protected Meeting findMeeting(final String meetingId) {
-
-        final long id;
+    public static long parseMeetingId(final String meetingId) {
 
         try {
-            id = Long.parseLong(meetingId);
+            return Long.parseLong(meetingId);
         } catch (NumberFormatException ex) {
             throw new InvalidCastException("Meeting id have to be long type");
         }
+    }
 
-        final Optional<Meeting> meeting = meetingRepository.findById(id);
+    protected Meeting findMeeting(final String meetingId) {
+
+        final long id = parseMeetingId(meetingId);
+
+        final Optional<Meeting> meeting = stageMetrics.record(StageMetrics.Stage.DB_LOOKUP, () -> meetingRepository.findById(id));
 
         return meeting.orElse(null);
     }
 
-    public void deleteMeeting(final String meetingId) {
+    private static void checkOwner(final Meeting meeting, final User mentor) {
+        if (!meeting.getMentor().getId().equals(mentor.getId()))
+            throw new NotOwnerException("You are not owner the meeting");
+    }
+
+    @Transactional
+    public void deleteMeeting(final String meetingId, final User mentor) {
 
         final Meeting databaseMeeting = findMeeting(meetingId);
 
         if (databaseMeeting == null)
             throw new MeetingNotFoundException("Meeting with ID: '" + meetingId + "' was not found");
 
+        checkOwner(databaseMeeting, mentor);
+
         if (databaseMeeting.getBooked())
             throw new MeetingBookedException("You can not delete meeting with ID: '" + meetingId + "' because someone booked the meeting");
 
-        meetingRepository.deleteById(Long.parseLong(meetingId));
+        meetingRepository.deleteById(databaseMeeting.getId());
+        meetingChangeService.recordDeletion(databaseMeeting.getId());
+        eventPublisher.publishEvent(MeetingChangedEvent.of(MeetingChangedEvent.Type.DELETED, databaseMeeting, false));
     }
 
-    public Meeting updateMeeting(final String meetingId, final Meeting meeting) {
+    @Transactional
+    public Meeting updateMeeting(final String meetingId, final Meeting meeting, final User mentor) {
 
         final Meeting databaseMeeting = findMeeting(meetingId);
 
         if (databaseMeeting == null)
             throw new MeetingNotFoundException("Meeting with ID: '" + meetingId + "' was not found");
 
+        checkOwner(databaseMeeting, mentor);
+
         if (databaseMeeting.getBooked())
             throw new MeetingBookedException("You can not update meeting with ID: '" + meetingId + "' because someone booked the meeting");
 
@@ -135,20 +224,65 @@ public class MeetingService {
         if (meetingsNumber != 1)
             throw new MeetingTimeException("Time between meetingStartTime and meetingEndTime have to be 15 minutes");
 
-        //check collisions
-        final List<Meeting> collisionMeetings = checkCollision((List<Meeting>) meetingRepository.findAll(), List.of(meeting));
+        //check collisions, the updated meeting itself is not a collision
+        final List<Meeting> collisionMeetings = findCollisions(databaseMeeting.getMentor(), List.of(meeting),
+                () -> findOverlappingMeetings(meeting, databaseMeeting.getMentor()).stream()
+                        .filter(overlappingMeeting -> !overlappingMeeting.getId().equals(databaseMeeting.getId()))
+                        .collect(Collectors.toList()));
 
         //there are collisions
         if (!collisionMeetings.isEmpty())
             throw new MeetingsAlreadyExistException("Meetings already exist", collisionMeetings);
 
-        return meetingRepository.save(meeting);
+        //free the old slot, the new one is marked when the meeting is saved
+        meetingCalendar.removeMeeting(databaseMeeting.getMentor().getId(),
+                databaseMeeting.getMeetingDate(),
+                databaseMeeting.getMeetingStartTime(),
+                databaseMeeting.getMeetingEndTime());
+
+        final Meeting updatedMeeting = stageMetrics.record(StageMetrics.Stage.SAVE, () -> meetingRepository.save(meeting));
+        Hibernate.initialize(updatedMeeting.getMentor());
+        eventPublisher.publishEvent(MeetingChangedEvent.of(MeetingChangedEvent.Type.UPDATED, updatedMeeting, false));
+
+        return updatedMeeting;
     }
 
-    public Iterable<Meeting> getAllMeetings() {
-        return meetingRepository.findAll();
+    private static int pageSize(final int limit) {
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
     }
 
+    private static CursorPage<MeetingView> toPage(final List<MeetingView> meetings, final int pageSize) {
+
+        //one row more than the page size was fetched to know if there is a next page
+        if (meetings.size() <= pageSize)
+            return new CursorPage<>(meetings, null);
+
+        final List<MeetingView> content = meetings.subList(0, pageSize);
+        final String nextCursor = MeetingCursor.of(content.get(pageSize - 1)).encode();
+
+        return new CursorPage<>(content, nextCursor);
+    }
+
+    public CursorPage<MeetingView> getAllMeetings(final String cursor, final int limit) {
+
+        final int pageSize = pageSize(limit);
+        final Pageable pageable = PageRequest.of(0, pageSize + 1);
+
+        if (cursor == null)
+            return toPage(meetingRepository.findFirstPage(pageable), pageSize);
+
+        final MeetingCursor after = MeetingCursor.decode(cursor);
+        final List<MeetingView> meetings = meetingRepository.findPageAfter(
+                after.getMeetingDate(),
+                after.getMeetingStartTime(),
+                after.getId(),
+                pageable
+        );
+
+        return toPage(meetings, pageSize);
+    }
+
+    @Transactional(readOnly = true)
     public Meeting getMeeting(final String meetingId) {
 
         final Meeting meeting = findMeeting(meetingId);
@@ -156,10 +290,75 @@ public class MeetingService {
         if (meeting == null)
             throw new MeetingNotFoundException("Meeting with ID: '" + meetingId + "' was not found");
 
+        //a meeting read from the second-level cache skips the entity graph, its mentor is loaded here
+        Hibernate.initialize(meeting.getMentor());
+
         return meeting;
     }
 
-    public Iterable<Meeting> getAllNotBookedMeetings() {
-        return meetingRepository.findAllByBooked(false);
+    public CursorPage<MeetingView> getAllNotBookedMeetings(final String cursor, final int limit) {
+
+        final int pageSize = pageSize(limit);
+        final Pageable pageable = PageRequest.of(0, pageSize + 1);
+
+        if (cursor == null)
+            return toPage(meetingRepository.findFirstPageByBooked(false, pageable), pageSize);
+
+        final MeetingCursor after = MeetingCursor.decode(cursor);
+        final List<MeetingView> meetings = meetingRepository.findPageByBookedAfter(
+                false,
+                after.getMeetingDate(),
+                after.getMeetingStartTime(),
+                after.getId(),
+                pageable
+        );
+
+        return toPage(meetings, pageSize);
+    }
+
+    public List<MeetingView> getAvailableMeetings(final LocalDate from, final LocalDate to, final int limit) {
+
+        final LocalDateTime now = LocalDateTime.now();
+        final Pageable pageable = PageRequest.of(0, pageSize(limit));
+
+        //past slots are never available
+        final LocalDate fromDate = from == null || from.isBefore(now.toLocalDate()) ? now.toLocalDate() : from;
+        final LocalTime fromTime = fromDate.equals(now.toLocalDate()) ? now.toLocalTime() : LocalTime.MIN;
+
+        if (to == null)
+            return meetingRepository.findAvailableFrom(fromDate, fromTime, pageable);
+
+        return meetingRepository.findAvailableBetween(fromDate, fromTime, to, pageable);
+    }
+
+    public List<MeetingView> getNextAvailableMeetings(final int limit) {
+        return getAvailableMeetings(null, null, limit);
+    }
+
+    public List<CalendarDayResponse> getCalendar(final LocalDate from, final LocalDate to) {
+
+        final LocalDate lastDate = to == null || to.isAfter(from.plusDays(MAX_CALENDAR_DAYS - 1))
+                ? from.plusDays(MAX_CALENDAR_DAYS - 1)
+                : to;
+
+        final List<CalendarDayResponse> calendar = new ArrayList<>();
+        for (LocalDate date = from; !date.isAfter(lastDate); date = date.plusDays(1))
+            calendar.add(meetingCalendar.describeDay(date));
+
+        return calendar;
+    }
+
+    public CalendarConsistencyResponse verifyCalendar() {
+
+        final List<LocalDate> inconsistentDates = meetingCalendar.findInconsistentDates(meetingRepository.findAllSlotsBy());
+
+        return new CalendarConsistencyResponse(inconsistentDates.isEmpty(), inconsistentDates, false);
+    }
+
+    public CalendarConsistencyResponse repairCalendar() {
+
+        final List<LocalDate> repairedDates = meetingCalendar.repair(meetingRepository.findAllSlotsBy());
+
+        return new CalendarConsistencyResponse(repairedDates.isEmpty(), repairedDates, !repairedDates.isEmpty());
     }
 }
@@ -0,0 +1,34 @@
+package com.javasolution.app.mentoring.services;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.javasolution.app.mentoring.entities.User;
+import com.javasolution.app.mentoring.entities.UserRole;
+import com.javasolution.app.mentoring.repositories.UserRepository;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+@Component
+public class MentorRegistry {
+
+    private static final Duration TIME_TO_LIVE = Duration.ofMinutes(10);
+
+    //one entry holding all mentors, reloaded after the ttl or a change of a mentor
+    private final LoadingCache<UserRole, List<User>> mentors;
+
+    public MentorRegistry(final UserRepository userRepository) {
+        this.mentors = Caffeine.newBuilder()
+                .expireAfterWrite(TIME_TO_LIVE)
+                .build(userRole -> List.copyOf(userRepository.findAllByUserRole(userRole)));
+    }
+
+    public List<User> getMentors() {
+        return mentors.get(UserRole.MENTOR);
+    }
+
+    public void refresh() {
+        mentors.invalidateAll();
+    }
+}
@@ -0,0 +1,77 @@
+package com.javasolution.app.mentoring.services;
+
+import com.javasolution.app.mentoring.events.MeetingChangedEvent;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+//versions of the meeting and booking collections, the etags of their reads are built from them
+@Service
+public class ResourceVersions {
+
+    //every instance counts its own versions, so a tag of another node or from before a restart never matches
+    private final String bootId = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+    private final AtomicLong meetingsVersion = new AtomicLong();
+    private final AtomicLong bookingsVersion = new AtomicLong();
+
+    //read before the data, a change committed in between only makes the next request miss
+    public String meetingsTag() {
+        return "\"meetings-" + bootId + "-" + meetingsVersion.get() + "\"";
+    }
+
+    //a single resource has a tag of its own, the tag of one id does not answer for another
+    public String meetingTag(final long meetingId) {
+        return "\"meeting-" + bootId + "-" + meetingsVersion.get() + "-" + meetingId + "\"";
+    }
+
+    public String bookingsTag() {
+        return "\"bookings-" + bootId + "-" + bookingsVersion.get() + "\"";
+    }
+
+    public String bookingsTag(final Long studentId) {
+        return "\"bookings-" + bootId + "-" + bookingsVersion.get() + "-" + studentId + "\"";
+    }
+
+    public String bookingTag(final long bookingId) {
+        return "\"booking-" + bootId + "-" + bookingsVersion.get() + "-" + bookingId + "\"";
+    }
+
+    public String bookingTag(final Long studentId, final long bookingId) {
+        return "\"booking-" + bootId + "-" + bookingsVersion.get() + "-" + studentId + "-" + bookingId + "\"";
+    }
+
+    //bumped after commit, so a new tag is never given to data from before the change
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMeetingChanged(final MeetingChangedEvent event) {
+
+        meetingsVersion.incrementAndGet();
+
+        if (event.getType() == MeetingChangedEvent.Type.BOOKED || event.getType() == MeetingChangedEvent.Type.CANCELLED)
+            bookingsVersion.incrementAndGet();
+    }
+
+    //meetings and bookings embed their mentors and students
+    public void usersChanged() {
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            bumpAll();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                bumpAll();
+            }
+        });
+    }
+
+    private void bumpAll() {
+        meetingsVersion.incrementAndGet();
+        bookingsVersion.incrementAndGet();
+    }
+}
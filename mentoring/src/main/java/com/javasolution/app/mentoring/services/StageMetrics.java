@@ -0,0 +1,73 @@
+package com.javasolution.app.mentoring.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+//timers of the stages inside the services and counters of their failures
+@Service
+public class StageMetrics {
+
+    public enum Stage {
+        DB_LOOKUP("db_lookup"),
+        COLLISION_CHECK("collision_check"),
+        EMAIL_SEND("email_send"),
+        SAVE("save");
+
+        private final String tag;
+
+        Stage(final String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private final Map<Stage, Timer> timers = new EnumMap<>(Stage.class);
+    private final Counter bookingConflicts;
+    private final Counter emailFailures;
+    private final Counter deadEmails;
+
+    public StageMetrics(final MeterRegistry meterRegistry) {
+
+        for (Stage stage : Stage.values())
+            timers.put(stage, Timer.builder("mentoring.stage")
+                    .description("Time of a stage of a request inside the services")
+                    .tag("stage", stage.tag)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+
+        this.bookingConflicts = Counter.builder("mentoring.booking.conflicts")
+                .description("Bookings rejected because the meeting was already booked")
+                .register(meterRegistry);
+        this.emailFailures = Counter.builder("mentoring.email.failures")
+                .description("Emails which could not be sent to the mail server")
+                .register(meterRegistry);
+        this.deadEmails = Counter.builder("mentoring.email.dead")
+                .description("Emails given up after the last attempt")
+                .register(meterRegistry);
+    }
+
+    public <T> T record(final Stage stage, final Supplier<T> step) {
+        return timers.get(stage).record(step);
+    }
+
+    public void record(final Stage stage, final Runnable step) {
+        timers.get(stage).record(step);
+    }
+
+    public void bookingConflict() {
+        bookingConflicts.increment();
+    }
+
+    public void emailFailure() {
+        emailFailures.increment();
+    }
+
+    public void emailDead() {
+        deadEmails.increment();
+    }
+}
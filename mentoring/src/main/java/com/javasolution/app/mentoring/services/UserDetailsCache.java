@@ -0,0 +1,58 @@
+package com.javasolution.app.mentoring.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.javasolution.app.mentoring.entities.User;
+import com.javasolution.app.mentoring.repositories.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+
+@Component
+public class UserDetailsCache {
+
+    private static final int MAX_CACHED_USERS = 10_000;
+    private static final Duration TIME_TO_LIVE = Duration.ofMinutes(5);
+
+    private final Cache<String, User> users = Caffeine.newBuilder()
+            .maximumSize(MAX_CACHED_USERS)
+            .expireAfterWrite(TIME_TO_LIVE)
+            .recordStats()
+            .build();
+
+    private final UserRepository userRepository;
+
+    public UserDetailsCache(final UserRepository userRepository, final MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        CaffeineCacheMetrics.monitor(meterRegistry, users, "userDetails");
+    }
+
+    //null when there is no user with this email, misses are not cached
+    public User get(final String email) {
+        return users.get(email, userRepository::findByEmail);
+    }
+
+    public void put(final User user) {
+        users.put(user.getEmail(), user);
+    }
+
+    //inside a transaction the user is evicted after commit, a request loading it before the commit would cache the old row again
+    public void invalidate(final String email) {
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            users.invalidate(email);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                users.invalidate(email);
+            }
+        });
+    }
+}
@@ -1,56 +1,78 @@
 package com.javasolution.app.mentoring.services;
 
 import com.javasolution.app.mentoring.entities.*;
+import com.javasolution.app.mentoring.events.MeetingChangedEvent;
+import com.javasolution.app.mentoring.projections.MeetingSlot;
+import com.javasolution.app.mentoring.projections.UserView;
 import com.javasolution.app.mentoring.exceptions.*;
 import com.javasolution.app.mentoring.repositories.MeetingBookingRepository;
 import com.javasolution.app.mentoring.repositories.MeetingRepository;
 import com.javasolution.app.mentoring.repositories.UserRepository;
 import com.javasolution.app.mentoring.requests.UpdateUserRequest;
+import com.javasolution.app.mentoring.responses.MentorResponse;
+import com.javasolution.app.mentoring.security.BoundedPasswordEncoder;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import javax.mail.MessagingException;
-import javax.mail.internet.MimeMessage;
-import java.security.Principal;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 @Service
 public class UserService implements UserDetailsService {
 
     @Autowired //must be autowired
-    private BCryptPasswordEncoder bCryptPasswordEncoder;
+    private BoundedPasswordEncoder passwordEncoder;
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
     private final UserRepository userRepository;
     private final ConfirmationTokenService confirmationTokenService;
-    private final JavaMailSender javaMailSender;
+    private final EmailOutboxService emailOutboxService;
     private final MeetingRepository meetingRepository;
     private final MeetingBookingRepository meetingBookingRepository;
+    private final UserDetailsCache userDetailsCache;
+    private final MentorRegistry mentorRegistry;
+    private final MeetingCalendar meetingCalendar;
+    private final ResourceVersions resourceVersions;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
 
     public UserService(final UserRepository userRepository,
                        final ConfirmationTokenService confirmationTokenService,
-                       final JavaMailSender javaMailSender,
+                       final EmailOutboxService emailOutboxService,
                        final MeetingRepository meetingRepository,
-                       final MeetingBookingRepository meetingBookingRepository) {
+                       final MeetingBookingRepository meetingBookingRepository,
+                       final UserDetailsCache userDetailsCache,
+                       final MentorRegistry mentorRegistry,
+                       final MeetingCalendar meetingCalendar,
+                       final ResourceVersions resourceVersions,
+                       final TransactionTemplate transactionTemplate,
+                       final ApplicationEventPublisher eventPublisher) {
         this.confirmationTokenService = confirmationTokenService;
         this.userRepository = userRepository;
-        this.javaMailSender = javaMailSender;
+        this.emailOutboxService = emailOutboxService;
         this.meetingRepository = meetingRepository;
         this.meetingBookingRepository = meetingBookingRepository;
+        this.userDetailsCache = userDetailsCache;
+        this.mentorRegistry = mentorRegistry;
+        this.meetingCalendar = meetingCalendar;
+        this.resourceVersions = resourceVersions;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
     }
 
-    void sendConfirmationMail(final String userMail, final String token) throws MessagingException {
-
-        final MimeMessage mimeMessage = javaMailSender.createMimeMessage();
-        final MimeMessageHelper mimeMessageHelper = new MimeMessageHelper(mimeMessage, true);
-        mimeMessageHelper.setTo(userMail);
-        mimeMessageHelper.setSubject("Mail Confirmation Link!");
+    void sendConfirmationMail(final String userMail, final String token) {
 
         final String message = "<head>" +
                 "<style type=\"text/css\">" +
@@ -65,18 +87,24 @@ public class UserService implements UserDetailsService {
                 "http://localhost:8080/api/users/sign-up/confirm?token=" + token +
                 "</div>";
 
-        mimeMessage.setContent(message, "text/html; charset=utf-8");
-        javaMailSender.send(mimeMessage);
+        emailOutboxService.enqueue(userMail, "Mail Confirmation Link!", message);
     }
 
-    public User updateMe(final UpdateUserRequest updateUserRequest, final Principal principal) {
+    public User updateMe(final UpdateUserRequest updateUserRequest, final User currentUser) {
 
-        final User user = userRepository.findByEmail(principal.getName());
+        //the authenticated user is shared by the cache, so a managed copy is updated
+        final User user = userRepository.findById(currentUser.getId())
+                .orElseThrow(() -> new UserNotFoundException("User with ID: '" + currentUser.getId() + "' was not found"));
 
         user.setName(updateUserRequest.getName());
         user.setSurname(updateUserRequest.getSurname());
 
-        return userRepository.save(user);
+        final User savedUser = userRepository.save(user);
+        userDetailsCache.invalidate(savedUser.getEmail());
+        if (savedUser.getUserRole() == UserRole.MENTOR) mentorRegistry.refresh();
+        resourceVersions.usersChanged();
+
+        return savedUser;
     }
 
     protected User findUser(final String userId) {
@@ -99,12 +127,26 @@ public class UserService implements UserDetailsService {
 
         final User user = userRepository.findByEmail(email);
 
+        if (user == null)
+            throw new UsernameNotFoundException("User with email " + email + " cannot be found.");
+
+        //signing in refreshes the cached user
+        userDetailsCache.put(user);
+
+        return user;
+    }
+
+    public UserDetails loadCachedUserByUsername(final String email) throws UsernameNotFoundException {
+
+        final User user = userDetailsCache.get(email);
+
         if (user == null)
             throw new UsernameNotFoundException("User with email " + email + " cannot be found.");
         else
             return user;
     }
 
+    @Transactional
     public void deleteUser(final String userId) {
 
         final User student = findUser(userId);
@@ -115,24 +157,29 @@ public class UserService implements UserDetailsService {
         if (student.getUserRole() == UserRole.MENTOR)
             throw new DeleteAccountException("You can not delete account because this is mentor");
 
-        final List<MeetingBooking> meetingsBookings = meetingBookingRepository.findAllByStudent(student);
+        //bulk statements bypass the entity listener, so the slots which become free are read first
+        final List<MeetingSlot> releasedSlots = meetingRepository.findAllSlotsBookedBy(student);
 
-        if (meetingsBookings != null) {
+        //a constant number of statements, no matter how many bookings the student has
+        meetingRepository.releaseMeetingsBookedBy(student, LocalDateTime.now());
+        meetingBookingRepository.deleteAllBookingsOf(student);
+        confirmationTokenService.deleteConfirmationTokensOf(student);
+        userRepository.deleteUserById(student.getId());
 
-            for (MeetingBooking meetingBooking : meetingsBookings) {
-                final Meeting meeting = meetingBooking.getMeeting();
-                meeting.setBooked(false);
-                meetingRepository.save(meeting);
-            }
-            meetingBookingRepository.deleteAll(meetingsBookings);
-        }
+        //the calendar frees the slots after commit, a rolled back deletion keeps them booked
+        if (!releasedSlots.isEmpty())
+            meetingCalendar.setBooked(releasedSlots, false);
 
-        userRepository.delete(student);
+        //subscribers see the freed slots, after commit like every other change
+        if (!releasedSlots.isEmpty())
+            eventPublisher.publishEvent(MeetingChangedEvent.ofSlots(MeetingChangedEvent.Type.CANCELLED, releasedSlots, false));
+
+        userDetailsCache.invalidate(student.getEmail());
+        resourceVersions.usersChanged();
     }
 
-    public void deleteAccount(final Principal principal) {
+    public void deleteAccount(final User student) {
 
-        final User student = userRepository.findByEmail(principal.getName());
         if (student.getUserRole() == UserRole.MENTOR)
             throw new DeleteAccountException("You can not delete account because you are mentor");
 
@@ -142,18 +189,25 @@ public class UserService implements UserDetailsService {
             throw new MeetingBookingAlreadyExistsException("You can not delete account because you have bookings");
 
         userRepository.delete(student);
+        userDetailsCache.invalidate(student.getEmail());
     }
 
-    public User getMe(final Principal principal) {
-        return userRepository.findByEmail(principal.getName());
+    public User getMe(final User user) {
+        return user;
     }
 
+    //hashing waits for a bcrypt thread, it runs before the transaction so no connection is held meanwhile
     public User signUpUser(final User user) {
 
-        final String encryptedPassword = bCryptPasswordEncoder.encode(user.getPassword());
+        final String encryptedPassword = passwordEncoder.encode(user.getPassword());
         user.setPassword(encryptedPassword);
         user.setConfirmPassword("");
 
+        return transactionTemplate.execute(status -> saveNewUser(user));
+    }
+
+    private User saveNewUser(final User user) {
+
         final User savedUser;
 
         try {
@@ -163,16 +217,12 @@ public class UserService implements UserDetailsService {
         }
 
         final ConfirmationToken confirmationToken = new ConfirmationToken(user);
-        final ConfirmationToken savedConfirmationToken = confirmationTokenService.saveConfirmationToken(confirmationToken);
+        confirmationTokenService.saveConfirmationToken(confirmationToken);
 
-        try {
-            sendConfirmationMail(user.getEmail(), confirmationToken.getConfirmationToken());
-        } catch (final MessagingException ex) {
-            userRepository.delete(user);
-            confirmationTokenService.deleteConfirmationToken(savedConfirmationToken.getId());
-            throw new UnableSendEmailException("Something went wrong. Please try again later");
-        }
+        sendConfirmationMail(user.getEmail(), confirmationToken.getConfirmationToken());
 
+        //the password is hidden in the response only, not in the database
+        entityManager.detach(savedUser);
         savedUser.setPassword("");
 
         return savedUser;
@@ -184,12 +234,20 @@ public class UserService implements UserDetailsService {
         user.setEnabled(true);
 
         userRepository.save(user);
+        userDetailsCache.invalidate(user.getEmail());
+        if (user.getUserRole() == UserRole.MENTOR) mentorRegistry.refresh();
 
         confirmationTokenService.deleteConfirmationToken(confirmationToken.getId());
     }
 
-    public Iterable<User> getAllUsers() {
-        return userRepository.findAll();
+    public List<UserView> getAllUsers() {
+        return userRepository.findAllViews();
+    }
+
+    public List<MentorResponse> getMentors() {
+        return mentorRegistry.getMentors().stream()
+                .map(mentor -> new MentorResponse(mentor.getId(), mentor.getName(), mentor.getSurname(), mentor.getEmail()))
+                .collect(Collectors.toList());
     }
 
     public User getUser(final String userId) {
@@ -0,0 +1,5 @@
+-- meeting ids come from the emulated meetings_sequence table, which ddl-auto creates starting at 1 on a schema
+-- upgraded from identity ids, so it is moved past the existing ids (the pooled optimizer hands out next_val - 49)
+update meetings_sequence
+set next_val = (select coalesce(max(id), 0) + 50 from meetings)
+where next_val < (select coalesce(max(id), 0) + 50 from meetings);
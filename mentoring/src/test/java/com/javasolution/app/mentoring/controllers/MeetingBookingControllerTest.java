@@ -8,39 +8,75 @@ import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.google.gson.Gson;
 import com.javasolution.app.mentoring.entities.Meeting;
 import com.javasolution.app.mentoring.entities.MeetingBooking;
+import com.javasolution.app.mentoring.entities.OutboxEmail;
+import com.javasolution.app.mentoring.loadtest.SmtpSink;
 import com.javasolution.app.mentoring.entities.User;
 import com.javasolution.app.mentoring.entities.UserRole;
 import com.javasolution.app.mentoring.exceptions.*;
 import com.javasolution.app.mentoring.repositories.MeetingBookingRepository;
 import com.javasolution.app.mentoring.repositories.MeetingRepository;
+import com.javasolution.app.mentoring.repositories.OutboxEmailRepository;
 import com.javasolution.app.mentoring.repositories.UserRepository;
 import com.javasolution.app.mentoring.requests.LoginRequest;
+import com.javasolution.app.mentoring.security.BoundedPasswordEncoder;
+import com.javasolution.app.mentoring.services.EmailOutboxService;
+import com.javasolution.app.mentoring.services.MeetingCalendar;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.json.JSONObject;
+import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
 import org.springframework.http.MediaType;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
+import javax.persistence.EntityManagerFactory;
+import javax.mail.internet.MimeMessage;
 import java.io.IOException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.*;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
-@SpringBootTest
+//own database, so outbox dispatchers of other test contexts do not take these emails,
+//the scheduled dispatcher runs just at startup, so statistics count only the statements of a request
+//emails go to an in-process smtp sink, a reply later than the timeout fails the send
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:mentoring-bookings",
+        "mentoring.mail.outbox.poll-interval=3600000",
+        "spring.mail.host=localhost",
+        "spring.mail.username=",
+        "spring.mail.password=",
+        "spring.mail.properties.mail.smtp.auth=false",
+        "spring.mail.properties.mail.smtp.starttls.enable=false",
+        "spring.mail.properties.mail.smtp.timeout=500"
+})
 @AutoConfigureMockMvc
 @ActiveProfiles("h2")
 class MeetingBookingControllerTest {
@@ -55,11 +91,31 @@ class MeetingBookingControllerTest {
     private MeetingRepository meetingRepository;
 
     @Autowired
-    private BCryptPasswordEncoder bCryptPasswordEncoder;
+    private BoundedPasswordEncoder passwordEncoder;
 
     @Autowired
     private MeetingBookingRepository meetingBookingRepository;
 
+    private static SmtpSink smtpSink;
+
+    @SpyBean
+    private ErrorBodies errorBodies;
+
+    @Autowired
+    private EmailOutboxService emailOutboxService;
+
+    @Autowired
+    private OutboxEmailRepository outboxEmailRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private MeetingCalendar meetingCalendar;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     @Autowired
     ObjectMapper mapper = new ObjectMapper();
 
@@ -73,6 +129,21 @@ class MeetingBookingControllerTest {
     Long meetingId;
     Long bookingId;
 
+    @BeforeAll
+    static void startSmtpSink() throws IOException {
+        smtpSink = new SmtpSink();
+    }
+
+    @AfterAll
+    static void stopSmtpSink() throws IOException {
+        smtpSink.close();
+    }
+
+    @DynamicPropertySource
+    static void mailProperties(final DynamicPropertyRegistry registry) {
+        registry.add("spring.mail.port", () -> smtpSink.getPort());
+    }
+
     @BeforeEach
     void setUp() {
         createMentor();
@@ -83,6 +154,8 @@ class MeetingBookingControllerTest {
 
     @AfterEach
     void tearDown() {
+        smtpSink.reset();
+        outboxEmailRepository.deleteAll();
         meetingBookingRepository.deleteAll();
         meetingRepository.deleteAll();
         userRepository.deleteAll();
@@ -94,7 +167,7 @@ class MeetingBookingControllerTest {
         //create other student
         User otherStudent = new User();
         otherStudent.setPassword("pass123456");
-        otherStudent.setPassword(bCryptPasswordEncoder.encode(otherStudent.getPassword()));
+        otherStudent.setPassword(passwordEncoder.encode(otherStudent.getPassword()));
         otherStudent.setConfirmPassword("");
         otherStudent.setName("Tomek");
         otherStudent.setSurname("Kanapka");
@@ -183,6 +256,53 @@ class MeetingBookingControllerTest {
         assertEquals(1, meetingBookingRepository.count());
     }
 
+    @Test
+    void bookingMeeting_bookingLeftOverForFreeMeeting_calendarSlotStaysFree() throws Exception {
+
+        //the meeting is free, but a booking left over for it makes the save fail after the claim
+        assertEquals(0, meetingCalendar.describeDay(LocalDate.now()).getBookedMeetings());
+        final String jwt = login(student.getEmail(), student.getPassword());
+
+        mockMvc.perform(post("/api/meetings/{meetingId}/bookings", meetingId)
+                .header("Authorization", "Bearer " + jwt))
+                .andExpect(status().isBadRequest())
+                .andExpect(result -> assertTrue(result.getResolvedException() instanceof MeetingBookingAlreadyExistsException));
+
+        //the claim is rolled back and the calendar never sees the booking
+        assertFalse(meetingRepository.findById(meetingId).orElseThrow().getBooked());
+        assertEquals(0, meetingCalendar.describeDay(LocalDate.now()).getBookedMeetings());
+        assertEquals(1, meetingCalendar.describeDay(LocalDate.now()).getFreeMeetings());
+    }
+
+    @Test
+    void bookingMeeting_repeatedConflicts_samePreEncodedBodyWithoutStackTrace() throws Exception {
+
+        final String jwt = login(student.getEmail(), student.getPassword());
+
+        //the bodies handed to the responses, to see whether the second one is the encoded array of the first
+        final List<byte[]> encodedBodies = new ArrayList<>();
+        doAnswer(invocation -> {
+            final byte[] body = (byte[]) invocation.callRealMethod();
+            encodedBodies.add(body);
+            return body;
+        }).when(errorBodies).encode(any(), any());
+
+        final List<MvcResult> results = new ArrayList<>();
+        for (int i = 0; i < 2; i++)
+            results.add(mockMvc.perform(post("/api/meetings/{meetingId}/bookings", meetingId)
+                    .header("Authorization", "Bearer " + jwt))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(jsonPath("$.meetingBooking").value("Meeting with ID: '" + meetingId + "' is already booked"))
+                    .andReturn());
+
+        //the second conflict is answered with the body encoded for the first one
+        assertEquals(2, encodedBodies.size());
+        assertSame(encodedBodies.get(0), encodedBodies.get(1));
+        assertArrayEquals(encodedBodies.get(0), results.get(1).getResponse().getContentAsByteArray());
+        assertEquals(0, Objects.requireNonNull(results.get(1).getResolvedException()).getStackTrace().length);
+    }
+
     @Test
     void bookingMeeting_wrongMeetingIdType_meetingNotFoundException() throws Exception {
 
@@ -249,6 +369,158 @@ class MeetingBookingControllerTest {
         assertEquals(studentId, savedMeetingBooking.getStudent().getId());
     }
 
+    @Test
+    void bookingMeeting_meetingBooked_emailsSentByOutbox() throws Exception {
+
+        //create new meeting
+        final Meeting otherMeeting = new Meeting();
+        otherMeeting.setMeetingDate(LocalDate.now());
+        otherMeeting.setMeetingStartTime(LocalTime.of(21, 0, 0, 0));
+        otherMeeting.setMeetingEndTime(LocalTime.of(21, 15, 0, 0));
+        otherMeeting.setBooked(false);
+        otherMeeting.setCreateAt(LocalDateTime.now());
+        final Optional<User> foundMentor = userRepository.findById(mentorId);
+        foundMentor.ifPresent(otherMeeting::setMentor);
+        final Meeting savedMeeting = meetingRepository.save(otherMeeting);
+
+        final String jwt = login(student.getEmail(), student.getPassword());
+
+        mockMvc.perform(post("/api/meetings/{meetingId}/bookings", savedMeeting.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer " + jwt))
+                .andExpect(status().isOk());
+
+        //student and mentor emails are sent after the commit by the dispatcher, not in the request
+        assertTrue(smtpSink.getMessages().isEmpty());
+        emailOutboxService.dispatch();
+
+        //exactly one email to each of them, a duplicate send would show up as a third message
+        final List<MimeMessage> messages = smtpSink.getMessages();
+        assertEquals(2, messages.size());
+        final Set<String> recipients = new HashSet<>();
+        for (MimeMessage message : messages) {
+            assertEquals(1, message.getAllRecipients().length);
+            recipients.add(message.getAllRecipients()[0].toString());
+            assertEquals("Booked meeting!", message.getSubject());
+        }
+        assertEquals(Set.of(student.getEmail(), mentor.getEmail()), recipients);
+        assertEquals(0, outboxEmailRepository.count());
+    }
+
+    @Test
+    void dispatch_smtpServerTooSlow_emailRetriedLater() {
+
+        final OutboxEmail slowEmail = outboxEmailRepository.save(new OutboxEmail(student.getEmail(), "Booked meeting!", "content"));
+        smtpSink.setReplyDelayMillis(2_000);
+
+        emailOutboxService.dispatch();
+
+        //the send timed out, the email is released from its lease and waits for the backoff
+        final OutboxEmail retriedEmail = outboxEmailRepository.findById(slowEmail.getId()).orElseThrow();
+        assertEquals(1, retriedEmail.getAttempts());
+        assertNull(retriedEmail.getClaimToken());
+        assertTrue(retriedEmail.getNextAttemptAt().isAfter(LocalDateTime.now()));
+        assertTrue(smtpSink.getMessages().isEmpty());
+    }
+
+    @Test
+    void dispatch_emailLeasedByOtherDispatcher_notSentAgain() {
+
+        //an email claimed by another instance carries its token and the end of the lease
+        final OutboxEmail leasedEmail = outboxEmailRepository.save(new OutboxEmail(student.getEmail(), "Booked meeting!", "content"));
+        leasedEmail.setClaimToken("other-dispatcher");
+        leasedEmail.setNextAttemptAt(LocalDateTime.now().plusMinutes(5));
+        outboxEmailRepository.save(leasedEmail);
+
+        emailOutboxService.dispatch();
+
+        assertTrue(smtpSink.getMessages().isEmpty());
+        assertEquals(1, outboxEmailRepository.count());
+    }
+
+    @Test
+    void dispatch_lastAttemptFails_emailKeptAsDeadAndPurgedLater() {
+
+        final OutboxEmail failingEmail = outboxEmailRepository.save(new OutboxEmail(student.getEmail(), "Booked meeting!", "content"));
+        failingEmail.setAttempts(4);
+        outboxEmailRepository.save(failingEmail);
+        smtpSink.setRejecting(true);
+        final double dead = meterRegistry.counter("mentoring.email.dead").count();
+
+        emailOutboxService.dispatch();
+
+        final OutboxEmail deadEmail = outboxEmailRepository.findById(failingEmail.getId()).orElseThrow();
+        assertEquals(5, deadEmail.getAttempts());
+        assertNull(deadEmail.getNextAttemptAt());
+        assertNull(deadEmail.getClaimToken());
+        assertEquals(dead + 1, meterRegistry.counter("mentoring.email.dead").count());
+
+        //a dead email is not sent again, even once the server accepts emails
+        smtpSink.setRejecting(false);
+        emailOutboxService.dispatch();
+        assertTrue(smtpSink.getMessages().isEmpty());
+
+        //it is kept within the retention
+        emailOutboxService.purgeDeadEmails();
+        assertEquals(1, outboxEmailRepository.countByNextAttemptAtIsNull());
+
+        deadEmail.setCreateAt(LocalDateTime.now().minusDays(31));
+        outboxEmailRepository.save(deadEmail);
+        emailOutboxService.purgeDeadEmails();
+        assertEquals(0, outboxEmailRepository.count());
+    }
+
+    @Test
+    void bookingMeeting_concurrentRequests_onlyOneRequestBooksMeeting() throws Exception {
+
+        //create new meeting
+        final Meeting otherMeeting = new Meeting();
+        otherMeeting.setMeetingDate(LocalDate.now());
+        otherMeeting.setMeetingStartTime(LocalTime.of(20, 0, 0, 0));
+        otherMeeting.setMeetingEndTime(LocalTime.of(20, 15, 0, 0));
+        otherMeeting.setBooked(false);
+        otherMeeting.setCreateAt(LocalDateTime.now());
+        final Optional<User> foundMentor = userRepository.findById(mentorId);
+        foundMentor.ifPresent(otherMeeting::setMentor);
+        final Meeting savedMeeting = meetingRepository.save(otherMeeting);
+
+        assertEquals(1, meetingBookingRepository.count());
+        final String jwt = login(student.getEmail(), student.getPassword());
+
+        final int requestsNumber = 200;
+        final ExecutorService executorService = Executors.newFixedThreadPool(requestsNumber);
+        final CountDownLatch startSignal = new CountDownLatch(1);
+        final List<Future<Integer>> statuses = new ArrayList<>();
+
+        for (int i = 0; i < requestsNumber; i++) {
+            statuses.add(executorService.submit(() -> {
+                startSignal.await();
+                try {
+                    return mockMvc.perform(post("/api/meetings/{meetingId}/bookings", savedMeeting.getId())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .header("Authorization", "Bearer " + jwt))
+                            .andReturn()
+                            .getResponse()
+                            .getStatus();
+                } catch (final Exception ex) {
+                    return -1;
+                }
+            }));
+        }
+
+        startSignal.countDown();
+
+        int bookedNumber = 0;
+        for (Future<Integer> status : statuses) {
+            if (status.get(1, TimeUnit.MINUTES) == 200) bookedNumber++;
+        }
+        executorService.shutdown();
+
+        assertEquals(1, bookedNumber);
+        assertEquals(2, meetingBookingRepository.count());
+        assertEquals(true, meetingRepository.findById(savedMeeting.getId()).map(Meeting::getBooked).orElse(false));
+    }
+
     @Test
     void cancelBooking_bookingCanceledSuccessfully() throws Exception {
 
@@ -309,7 +581,7 @@ class MeetingBookingControllerTest {
         //create other student
         final User otherStudent = new User();
         otherStudent.setPassword("pass123456");
-        otherStudent.setPassword(bCryptPasswordEncoder.encode(student.getPassword()));
+        otherStudent.setPassword(passwordEncoder.encode(student.getPassword()));
         otherStudent.setConfirmPassword("");
         otherStudent.setName("Tomek");
         otherStudent.setSurname("Kanapka");
@@ -373,6 +645,64 @@ class MeetingBookingControllerTest {
         assertEquals(meetingId, bookings.get(0).getMeeting().getId());
     }
 
+    @Test
+    void getAllBookings_bookingsOfSeveralStudents_oneQuery() throws Exception {
+
+        addBookingOfOtherStudent();
+        final String jwt = login(mentor.getEmail(), mentor.getPassword());
+        final Statistics statistics = statistics();
+        statistics.clear();
+
+        mockMvc.perform(get("/api/bookings")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer " + jwt))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[1].meeting.mentor.email").value(mentor.getEmail()));
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void getAllMyBookings_bookingsInDatabase_oneQuery() throws Exception {
+
+        addBookingOfOtherStudent();
+        final String jwt = login(student.getEmail(), student.getPassword());
+        final Statistics statistics = statistics();
+        statistics.clear();
+
+        mockMvc.perform(get("/api/bookings/me")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer " + jwt))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].meeting.mentor.email").value(mentor.getEmail()));
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void exportBookings_bookingsInDatabase_oneLinePerBooking() throws Exception {
+
+        addBookingOfOtherStudent();
+        final String jwt = login(mentor.getEmail(), mentor.getPassword());
+
+        final MvcResult export = mockMvc.perform(get("/api/bookings/export")
+                .header("Authorization", "Bearer " + jwt))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        final MvcResult result = mockMvc.perform(asyncDispatch(export))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn();
+
+        final String[] lines = result.getResponse().getContentAsString().split("\n");
+        assertEquals(2, lines.length);
+        for (String line : lines)
+            assertEquals(mentor.getEmail(), new JSONObject(line).getJSONObject("meeting").getJSONObject("mentor").getString("email"));
+    }
+
     @Test
     void getBooking_meetingBookingNotInDatabase_meetingBookingNotFoundException() throws Exception {
 
@@ -468,7 +798,7 @@ class MeetingBookingControllerTest {
         //create student
         student = new User();
         student.setPassword("pass123456");
-        student.setPassword(bCryptPasswordEncoder.encode(student.getPassword()));
+        student.setPassword(passwordEncoder.encode(student.getPassword()));
         student.setConfirmPassword("");
         student.setName("Dawid");
         student.setSurname("Ulfik");
@@ -480,6 +810,37 @@ class MeetingBookingControllerTest {
         student.setPassword("pass123456");
     }
 
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    private void addBookingOfOtherStudent() {
+
+        //create second student
+        final User otherStudent = new User();
+        otherStudent.setPassword(passwordEncoder.encode("pass555512"));
+        otherStudent.setConfirmPassword("");
+        otherStudent.setName("Ewa");
+        otherStudent.setSurname("Lis");
+        otherStudent.setEmail("ewa.lis99@gmail.com");
+        otherStudent.setUserRole(UserRole.STUDENT);
+        otherStudent.setEnabled(true);
+        final User savedOtherStudent = userRepository.save(otherStudent);
+
+        //create meeting and its booking
+        final Meeting otherMeeting = new Meeting();
+        otherMeeting.setMeetingDate(LocalDate.now().plusDays(1));
+        otherMeeting.setMeetingStartTime(LocalTime.of(10, 0, 0, 0));
+        otherMeeting.setMeetingEndTime(LocalTime.of(10, 15, 0, 0));
+        userRepository.findById(mentorId).ifPresent(otherMeeting::setMentor);
+        final Meeting savedOtherMeeting = meetingRepository.save(otherMeeting);
+
+        final MeetingBooking otherBooking = new MeetingBooking();
+        otherBooking.setStudent(savedOtherStudent);
+        otherBooking.setMeeting(savedOtherMeeting);
+        meetingBookingRepository.save(otherBooking);
+    }
+
     private void createBooking() {
 
         meetingBooking = new MeetingBooking();
@@ -497,7 +858,7 @@ class MeetingBookingControllerTest {
         //create mentor
         mentor = new User();
         mentor.setPassword("pass999967");
-        mentor.setPassword(bCryptPasswordEncoder.encode(mentor.getPassword()));
+        mentor.setPassword(passwordEncoder.encode(mentor.getPassword()));
         mentor.setConfirmPassword("");
         mentor.setName("Daniel");
         mentor.setSurname("Kowalski");
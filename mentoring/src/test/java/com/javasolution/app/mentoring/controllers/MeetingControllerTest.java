@@ -9,13 +9,23 @@ import com.google.gson.Gson;
 import com.javasolution.app.mentoring.entities.Meeting;
 import com.javasolution.app.mentoring.entities.User;
 import com.javasolution.app.mentoring.entities.UserRole;
+import com.javasolution.app.mentoring.events.MeetingChangedEvent;
+import com.javasolution.app.mentoring.exceptions.ExportBusyException;
 import com.javasolution.app.mentoring.exceptions.InvalidCastException;
 import com.javasolution.app.mentoring.exceptions.MeetingBookedException;
 import com.javasolution.app.mentoring.exceptions.MeetingNotFoundException;
 import com.javasolution.app.mentoring.exceptions.MeetingsAlreadyExistException;
 import com.javasolution.app.mentoring.repositories.MeetingRepository;
+import com.javasolution.app.mentoring.repositories.MeetingTombstoneRepository;
 import com.javasolution.app.mentoring.repositories.UserRepository;
 import com.javasolution.app.mentoring.requests.LoginRequest;
+import com.javasolution.app.mentoring.security.BoundedPasswordEncoder;
+import com.javasolution.app.mentoring.services.ExportService;
+import com.javasolution.app.mentoring.services.MeetingCalendar;
+import com.javasolution.app.mentoring.services.MeetingEventPublisher;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.json.JSONObject;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -24,24 +34,43 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import javax.persistence.EntityManagerFactory;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
-@SpringBootTest
+//the outbox dispatcher runs just at startup, so statistics count only the statements of a request
+//stalled stream writes are checked only when a test asks for it
+@SpringBootTest(properties = {"mentoring.mail.outbox.poll-interval=3600000", "mentoring.meetings.changes.lag=0s",
+        "mentoring.meetings.stream.send-timeout=200ms", "mentoring.meetings.stream.send-check-interval=3600000"})
 @AutoConfigureMockMvc
 @ActiveProfiles("h2")
 class MeetingControllerTest {
@@ -56,7 +85,25 @@ class MeetingControllerTest {
     private MeetingRepository meetingRepository;
 
     @Autowired
-    private BCryptPasswordEncoder bCryptPasswordEncoder;
+    private MeetingTombstoneRepository meetingTombstoneRepository;
+
+    @Autowired
+    private BoundedPasswordEncoder passwordEncoder;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MeetingEventPublisher meetingEventPublisher;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private MeetingCalendar meetingCalendar;
+
+    @Autowired
+    private ExportService exportService;
 
     @Autowired
     ObjectMapper mapper = new ObjectMapper();
@@ -78,6 +125,7 @@ class MeetingControllerTest {
 
     @AfterEach
     void tearDown() {
+        meetingTombstoneRepository.deleteAll();
         meetingRepository.deleteAll();
         userRepository.deleteAll();
     }
@@ -105,6 +153,43 @@ class MeetingControllerTest {
         assertEquals(1, meetingRepository.count());
     }
 
+    @Test
+    void addMeeting_otherMentorAtSameTime_meetingsCreatedForCallingMentor() throws Exception {
+
+        //create second mentor
+        final User otherMentor = new User();
+        otherMentor.setPassword(passwordEncoder.encode("pass777789"));
+        otherMentor.setConfirmPassword("");
+        otherMentor.setName("Anna");
+        otherMentor.setSurname("Nowak");
+        otherMentor.setEmail("anna.nowak91@gmail.com");
+        otherMentor.setUserRole(UserRole.MENTOR);
+        otherMentor.setEnabled(true);
+        final User savedOtherMentor = userRepository.save(otherMentor);
+
+        assertEquals(1, meetingRepository.count());
+        final JSONObject createMeetingRequestJson = new JSONObject()
+                .put("meetingDate", LocalDate.now().toString())
+                .put("meetingStartTime", "18:30:00")
+                .put("meetingEndTime", "20:30:00");
+        final String jwt = login(otherMentor.getEmail(), "pass777789");
+
+        final MvcResult result = mockMvc.perform(post("/api/meetings")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(createMeetingRequestJson.toString())
+                .header("Authorization", "Bearer " + jwt))
+                .andExpect(status().isCreated())
+                .andReturn();
+
+        final List<Meeting> meetings = mapper.readValue(result.getResponse().getContentAsString(),
+                new TypeReference<>() {
+                });
+
+        assertEquals(8, meetings.size());
+        meetings.forEach(createdMeeting -> assertEquals(savedOtherMentor.getId(), createdMeeting.getMentor().getId()));
+        assertEquals(9, meetingRepository.count());
+    }
+
     @Test
     void addMeeting_meetingsCreatedSuccessfully() throws Exception {
 
@@ -141,6 +226,140 @@ class MeetingControllerTest {
         assertEquals(4, meetingRepository.count());
     }
 
+    @Test
+    void addMeeting_workingDay_slotsInsertedInOneBatch() throws Exception {
+
+        final JSONObject createMeetingRequestJson = new JSONObject()
+                .put("meetingDate", LocalDate.now().plusDays(1).toString())
+                .put("meetingStartTime", "08:00:00")
+                .put("meetingEndTime", "16:00:00");
+        final String jwt = login(mentor.getEmail(), mentor.getPassword());
+        final Statistics statistics = statistics();
+        statistics.clear();
+
+        mockMvc.perform(post("/api/meetings")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(createMeetingRequestJson.toString())
+                .header("Authorization", "Bearer " + jwt))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.length()").value(32));
+
+        //collision query, one batched insert and at most two calls of the pooled sequence, unbatched inserts would be 32 statements
+        assertEquals(32, statistics.getEntityInsertCount());
+        assertTrue(statistics.getPrepareStatementCount() <= 4);
+        assertEquals(33, meetingRepository.count());
+    }
+
+    @Test
+    void addMeeting_meetingsCreated_stageTimersScrapedInPrometheusFormat() throws Exception {
+
+        final JSONObject createMeetingRequestJson = new JSONObject()
+                .put("meetingDate", LocalDate.now().toString())
+                .put("meetingStartTime", "20:15:00")
+                .put("meetingEndTime", "20:30:00");
+        final String jwt = login(mentor.getEmail(), mentor.getPassword());
+
+        mockMvc.perform(post("/api/meetings")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(createMeetingRequestJson.toString())
+                .header("Authorization", "Bearer " + jwt))
+                .andExpect(status().isCreated());
+
+        //the h2 profile shares the application port with actuator, metrics need a token there
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isUnauthorized());
+
+        final String scrape = mockMvc.perform(get("/actuator/prometheus")
+                .header("Authorization", "Bearer " + jwt))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertTrue(scrape.contains("mentoring_stage_seconds_bucket{stage=\"collision_check\""));
+        assertTrue(scrape.contains("mentoring_stage_seconds_count{stage=\"save\""));
+        assertTrue(scrape.contains("http_server_requests_seconds_bucket"));
+    }
+
+    @Test
+    void addMeeting_recordingRunning_collisionCheckEventRecorded() throws Exception {
+
+        final JSONObject createMeetingRequestJson = new JSONObject()
+                .put("meetingDate", LocalDate.now().toString())
+                .put("meetingStartTime", "20:15:00")
+                .put("meetingEndTime", "20:30:00");
+        final String jwt = login(mentor.getEmail(), mentor.getPassword());
+
+        mockMvc.perform(post("/api/recordings/start")
+                .header("Authorization", "Bearer " + jwt))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(post("/api/meetings")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(createMeetingRequestJson.toString())
+                .header("Authorization", "Bearer " + jwt))
+                .andExpect(status().isCreated());
+
+        final MvcResult stop = mockMvc.perform(post("/api/recordings/stop")
+                .header("Authorization", "Bearer " + jwt))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        final byte[] recording = mockMvc.perform(asyncDispatch(stop))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+
+        final Path file = Files.createTempFile("mentoring", ".jfr");
+        try {
+            Files.write(file, recording);
+            final List<RecordedEvent> collisionChecks = RecordingFile.readAllEvents(file).stream()
+                    .filter(event -> event.getEventType().getName().equals("com.javasolution.mentoring.CollisionCheck"))
+                    .collect(Collectors.toList());
+
+            assertEquals(1, collisionChecks.size());
+            assertEquals(mentorId.longValue(), collisionChecks.get(0).getLong("mentorId"));
+            assertEquals("free", collisionChecks.get(0).getString("outcome"));
+        } finally {
+            Files.delete(file);
+        }
+
+        //the recording is closed, so it can not be stopped twice
+        mockMvc.perform(post("/api/recordings/stop")
+                .header("Authorization", "Bearer " + jwt))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void addMeeting_partialOverlap_meetingsAlreadyExistException() throws Exception {
+
+        //create meeting which is not aligned to quarters of hour
+        final Meeting longMeeting = new Meeting();
+        longMeeting.setMeetingDate(LocalDate.now());
+        longMeeting.setMeetingStartTime(LocalTime.of(20, 0, 0, 0));
+        longMeeting.setMeetingEndTime(LocalTime.of(20, 30, 0, 0));
+        longMeeting.setBooked(false);
+        longMeeting.setCreateAt(LocalDateTime.now());
+        final Optional<User> foundMentor = userRepository.findById(mentorId);
+        foundMentor.ifPresent(longMeeting::setMentor);
+        meetingRepository.save(longMeeting);
+
+        assertEquals(2, meetingRepository.count());
+        final JSONObject createMeetingRequestJson = new JSONObject()
+                .put("meetingDate", LocalDate.now().toString())
+                .put("meetingStartTime", "20:15:00")
+                .put("meetingEndTime", "21:00:00");
+        final String createMeetingRequestJsonAsString = createMeetingRequestJson.toString();
+        final String jwt = login(mentor.getEmail(), mentor.getPassword());
+
+        mockMvc.perform(post("/api/meetings")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(createMeetingRequestJsonAsString)
+                .header("Authorization", "Bearer " + jwt))
+                .andExpect(status().isBadRequest())
+                .andExpect(result -> assertTrue(result.getResolvedException() instanceof MeetingsAlreadyExistException))
+                .andExpect(result -> assertEquals("Meetings already exist"
+                        , Objects.requireNonNull(result.getResolvedException()).getMessage()));
+
+        assertEquals(2, meetingRepository.count());
+    }
+
     @Test
     void deleteMeeting_someoneBookedMeeting_meetingBookedException() throws Exception {
 
@@ -215,6 +434,172 @@ class MeetingControllerTest {
         assertEquals(0, meetingRepository.count());
     }
 
+    @Test
+    void getMeetingChanges_meetingsAddedAndDeleted_onlyChangesReturned() throws Exception {
+
+        final LocalDateTime since = LocalDateTime.now().minusMinutes(1);
+        addMeetingsOfOtherMentor();
+        final String jwt = login(mentor.getEmail(), mentor.getPassword());
+
+        mockMvc.perform(delete("/api/meetings/{meetingId}", meetingId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer " + jwt))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/meetings/changes")
+                .param("since", since.toString())
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer " + jwt))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.reset").value(false))
+                .andExpect(jsonPath("$.meetings.length()").value(2))
+                .andExpect(jsonPath("$.removedMeetingIds.length()").value(1))
+                .andExpect(jsonPath("$.removedMeetingIds[0]").value(meetingId));
+    }
+
+    @Test
+    void streamMeetingChanges_meetingDeleted_eventPushedToSubscriber() throws Exception {
+
+        final String studentJwt = login(student.getEmail(), student.getPassword());
+        final String mentorJwt = login(mentor.getEmail(), mentor.getPassword());
+
+        final MvcResult stream = mockMvc.perform(get("/api/meetings/stream")
+                .header("Authorization", "Bearer " + studentJwt))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(delete("/api/meetings/{meetingId}", meetingId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer " + mentorJwt))
+                .andExpect(status().isOk());
+
+        //events are written by the sender threads
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (!stream.getResponse().getContentAsString().contains("DELETED") && System.currentTimeMillis() < deadline)
+            Thread.sleep(50);
+
+        final String events = stream.getResponse().getContentAsString();
+        stream.getRequest().getAsyncContext().complete();
+
+        assertTrue(events.contains("event:meeting"));
+        assertTrue(events.contains("\"type\":\"DELETED\""));
+        assertTrue(events.contains("\"meetingId\":" + meetingId));
+    }
+
+    @Test
+    void streamMeetingChanges_longDayAdded_singleEventWithAllSlots() throws Exception {
+
+        final String studentJwt = login(student.getEmail(), student.getPassword());
+        final String mentorJwt = login(mentor.getEmail(), mentor.getPassword());
+        final double dropped = meterRegistry.counter("meetings.stream.dropped").count();
+
+        final MvcResult stream = mockMvc.perform(get("/api/meetings/stream")
+                .header("Authorization", "Bearer " + studentJwt))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        //80 slots are more than the buffer of a subscriber holds
+        final JSONObject createMeetingRequestJson = new JSONObject()
+                .put("meetingDate", LocalDate.now().plusDays(1).toString())
+                .put("meetingStartTime", "00:00:00")
+                .put("meetingEndTime", "20:00:00");
+        mockMvc.perform(post("/api/meetings")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(createMeetingRequestJson.toString())
+                .header("Authorization", "Bearer " + mentorJwt))
+                .andExpect(status().isCreated());
+
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (!stream.getResponse().getContentAsString().contains("ADDED") && System.currentTimeMillis() < deadline)
+            Thread.sleep(50);
+
+        final String events = stream.getResponse().getContentAsString();
+        stream.getRequest().getAsyncContext().complete();
+
+        final String[] lines = events.split("\n");
+        assertEquals(1, Arrays.stream(lines).filter(line -> line.equals("event:meeting")).count());
+        final String data = Arrays.stream(lines).filter(line -> line.startsWith("data:")).findFirst().orElseThrow();
+        assertEquals(80, new JSONObject(data.substring("data:".length())).getJSONArray("meetings").length());
+        assertEquals(dropped, meterRegistry.counter("meetings.stream.dropped").count());
+    }
+
+    @Test
+    void streamMeetingChanges_subscriberNotReading_droppedWhenBufferOverflows() throws Exception {
+
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final double dropped = meterRegistry.counter("meetings.stream.dropped").count();
+        final MeetingChangedEvent event = new MeetingChangedEvent(MeetingChangedEvent.Type.UPDATED, List.of());
+
+        meetingEventPublisher.subscribe(blockingEmitter(writing, release));
+        try {
+            //the first event blocks the sender, the next ones fill the buffer of 64 events
+            meetingEventPublisher.onMeetingChanged(event);
+            assertTrue(writing.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 64; i++)
+                meetingEventPublisher.onMeetingChanged(event);
+            assertEquals(dropped, meterRegistry.counter("meetings.stream.dropped").count());
+
+            meetingEventPublisher.onMeetingChanged(event);
+            assertEquals(dropped + 1, meterRegistry.counter("meetings.stream.dropped").count());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void streamMeetingChanges_writeStalled_droppedAfterSendTimeout() throws Exception {
+
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final double dropped = meterRegistry.counter("meetings.stream.dropped").count();
+
+        meetingEventPublisher.subscribe(blockingEmitter(writing, release));
+        try {
+            meetingEventPublisher.onMeetingChanged(new MeetingChangedEvent(MeetingChangedEvent.Type.UPDATED, List.of()));
+            assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+            //a write younger than the send timeout is left alone
+            meetingEventPublisher.dropStalledSubscribers();
+            assertEquals(dropped, meterRegistry.counter("meetings.stream.dropped").count());
+
+            Thread.sleep(300);
+            meetingEventPublisher.dropStalledSubscribers();
+            assertEquals(dropped + 1, meterRegistry.counter("meetings.stream.dropped").count());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    //an emitter whose peer stopped reading, every write blocks until the test releases it
+    private SseEmitter blockingEmitter(final CountDownLatch writing, final CountDownLatch release) {
+        return new SseEmitter(60000L) {
+            @Override
+            public void send(final SseEventBuilder builder) throws IOException {
+                writing.countDown();
+                try {
+                    release.await();
+                } catch (final InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+    }
+
+    @Test
+    void getMeetingChanges_noWatermark_resetReturned() throws Exception {
+
+        final String jwt = login(student.getEmail(), student.getPassword());
+
+        mockMvc.perform(get("/api/meetings/changes")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer " + jwt))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.reset").value(true))
+                .andExpect(jsonPath("$.watermark").exists())
+                .andExpect(jsonPath("$.meetings.length()").value(0));
+    }
+
     @Test
     void updateMeeting_wrongMeetingIdType_invalidCastException() throws Exception {
 
@@ -366,6 +751,55 @@ class MeetingControllerTest {
         assertEquals(meetingId, meetings.get(0).getId());
     }
 
+    @Test
+    void getAllMeetings_limitSmallerThanMeetingsNumber_nextPageReturnedByCursor() throws Exception {
+
+        //create meetings
+        final Optional<User> foundMentor = userRepository.findById(mentorId);
+        for (int i = 0; i < 2; i++) {
+            final Meeting otherMeeting = new Meeting();
+            otherMeeting.setMeetingDate(LocalDate.now());
+            otherMeeting.setMeetingStartTime(LocalTime.of(20, 15 * i, 0, 0));
+            otherMeeting.setMeetingEndTime(otherMeeting.getMeetingStartTime().plusMinutes(15));
+            otherMeeting.setBooked(false);
+            otherMeeting.setCreateAt(LocalDateTime.now());
+            foundMentor.ifPresent(otherMeeting::setMentor);
+            meetingRepository.save(otherMeeting);
+        }
+
+        assertEquals(3, meetingRepository.count());
+        final String jwt = login(student.getEmail(), student.getPassword());
+
+        final MvcResult firstResult = mockMvc.perform(get("/api/meetings?limit=2")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer " + jwt))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        final List<Meeting> firstPage = mapper.readValue(firstResult.getResponse().getContentAsString(),
+                new TypeReference<>() {
+                });
+        final String cursor = firstResult.getResponse().getHeader("X-Next-Cursor");
+
+        assertEquals(2, firstPage.size());
+        assertEquals(meetingId, firstPage.get(0).getId());
+        assertNotNull(cursor);
+
+        final MvcResult secondResult = mockMvc.perform(get("/api/meetings?limit=2&cursor=" + cursor)
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer " + jwt))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        final List<Meeting> secondPage = mapper.readValue(secondResult.getResponse().getContentAsString(),
+                new TypeReference<>() {
+                });
+
+        assertEquals(1, secondPage.size());
+        assertEquals("20:15", secondPage.get(0).getMeetingStartTime().toString());
+        assertNull(secondResult.getResponse().getHeader("X-Next-Cursor"));
+    }
+
     @Test
     void getMeeting_meetingInDatabase_meetingReturnedSuccessfully() throws Exception {
 
@@ -383,6 +817,198 @@ class MeetingControllerTest {
         assertEquals(meetingId, meeting.getId());
     }
 
+    @Test
+    void getMeeting_meetingInDatabase_meetingReadFromSecondLevelCache() throws Exception {
+
+        final String jwt = login(mentor.getEmail(), mentor.getPassword());
+        final Statistics statistics = statistics();
+        statistics.clear();
+
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(get("/api/meetings/{meetingId}", meetingId)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .header("Authorization", "Bearer " + jwt))
+                    .andExpect(status().isOk());
+        }
+
+        assertTrue(statistics.getDomainDataRegionStatistics(Meeting.class.getName()).getHitCount() >= 2);
+    }
+
+    @Test
+    void getMeeting_meetingReadFromSecondLevelCache_hitsPublishedAsMetric() throws Exception {
+
+        final String jwt = login(mentor.getEmail(), mentor.getPassword());
+        final double hits = cacheRequests("hit");
+
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(get("/api/meetings/{meetingId}", meetingId)
+                    .header("Authorization", "Bearer " + jwt))
+                    .andExpect(status().isOk());
+        }
+
+        //bound by the actuator from the hibernate statistics
+        assertTrue(cacheRequests("hit") >= hits + 2);
+        assertTrue(cacheRequests("miss") >= 0);
+    }
+
+    private double cacheRequests(final String result) {
+        return meterRegistry.get("hibernate.second.level.cache.requests")
+                .tag("result", result)
+                .functionCounter()
+                .count();
+    }
+
+    @Test
+    void getAllNotBookedMeetings_firstPageRepeated_servedFromQueryCacheUntilBooking() throws Exception {
+
+        final String jwt = login(mentor.getEmail(), mentor.getPassword());
+        final Statistics statistics = statistics();
+
+        //a client without a tag is answered from the query cache after the first read
+        for (int i = 0; i < 2; i++) {
+            statistics.clear();
+            mockMvc.perform(get("/api/meetings/notBooked")
+                    .header("Authorization", "Bearer " + jwt))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.length()").value(1))
+                    .andExpect(jsonPath("$[0].mentor.email").value(mentor.getEmail()));
+        }
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getQueryCacheHitCount());
+
+        //a booked meeting invalidates the cached page
+        final Meeting foundMeeting = meetingRepository.findById(meetingId).orElseThrow();
+        foundMeeting.setBooked(true);
+        meetingRepository.save(foundMeeting);
+
+        mockMvc.perform(get("/api/meetings/notBooked")
+                .header("Authorization", "Bearer " + jwt))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+    }
+
+    @Test
+    void getAllMeetings_meetingsOfSeveralMentors_oneQuery() throws Exception {
+
+        addMeetingsOfOtherMentor();
+        final String jwt = login(mentor.getEmail(), mentor.getPassword());
+        final Statistics statistics = statistics();
+        statistics.clear();
+
+        mockMvc.perform(get("/api/meetings")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer " + jwt))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[2].mentor.email").exists());
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void getAllMeetings_etagMatches_notModifiedWithoutQuery() throws Exception {
+
+        final String jwt = login(mentor.getEmail(), mentor.getPassword());
+
+        final String etag = mockMvc.perform(get("/api/meetings")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer " + jwt))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        final Statistics statistics = statistics();
+        statistics.clear();
+
+        mockMvc.perform(get("/api/meetings")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer " + jwt)
+                .header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        assertEquals(0, statistics.getPrepareStatementCount());
+
+        //a deleted meeting changes the tag
+        mockMvc.perform(delete("/api/meetings/{meetingId}", meetingId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer " + jwt))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/meetings")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer " + jwt)
+                .header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+    }
+
+    @Test
+    void getMeeting_etagOfOtherMeeting_idValidatedAndLookedUp() throws Exception {
+
+        final String jwt = login(mentor.getEmail(), mentor.getPassword());
+
+        final String etag = mockMvc.perform(get("/api/meetings/{meetingId}", meetingId)
+                .header("Authorization", "Bearer " + jwt))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        assertNotNull(etag);
+        assertTrue(etag.endsWith("-" + meetingId + "\""));
+
+        mockMvc.perform(get("/api/meetings/{meetingId}", meetingId)
+                .header("Authorization", "Bearer " + jwt)
+                .header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        //the tag of one meeting does not answer for another id
+        mockMvc.perform(get("/api/meetings/{meetingId}", "123456")
+                .header("Authorization", "Bearer " + jwt)
+                .header("If-None-Match", etag))
+                .andExpect(status().isBadRequest())
+                .andExpect(result -> assertTrue(result.getResolvedException() instanceof MeetingNotFoundException));
+
+        mockMvc.perform(get("/api/meetings/{meetingId}", "as")
+                .header("Authorization", "Bearer " + jwt)
+                .header("If-None-Match", etag))
+                .andExpect(status().isBadRequest())
+                .andExpect(header().doesNotExist("ETag"))
+                .andExpect(result -> assertTrue(result.getResolvedException() instanceof InvalidCastException));
+    }
+
+    @Test
+    void getAllNotBookedMeetings_meetingsOfSeveralMentors_oneQuery() throws Exception {
+
+        addMeetingsOfOtherMentor();
+        final String jwt = login(mentor.getEmail(), mentor.getPassword());
+        final Statistics statistics = statistics();
+        statistics.clear();
+
+        mockMvc.perform(get("/api/meetings/notBooked")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer " + jwt))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[2].mentor.email").exists());
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void getNextAvailableMeetings_meetingsOfSeveralMentors_oneQuery() throws Exception {
+
+        addMeetingsOfOtherMentor();
+        final String jwt = login(student.getEmail(), student.getPassword());
+        final Statistics statistics = statistics();
+        statistics.clear();
+
+        mockMvc.perform(get("/api/meetings/available/next")
+                .param("limit", "10")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer " + jwt))
+                .andExpect(status().isOk());
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
     @Test
     void getMeeting_meetingNotInDatabase_meetingNotFoundException() throws Exception {
 
@@ -452,6 +1078,209 @@ class MeetingControllerTest {
         assertEquals(false, notBookedMeetings.get(0).getBooked());
     }
 
+    @Test
+    void getAvailableMeetings_pastAndBookedMeetingsSkipped() throws Exception {
+
+        final Optional<User> foundMentor = userRepository.findById(mentorId);
+
+        //create past meeting
+        final Meeting pastMeeting = new Meeting();
+        pastMeeting.setMeetingDate(LocalDate.now().minusDays(1));
+        pastMeeting.setMeetingStartTime(LocalTime.of(10, 0, 0, 0));
+        pastMeeting.setMeetingEndTime(LocalTime.of(10, 15, 0, 0));
+        pastMeeting.setCreateAt(LocalDateTime.now());
+        foundMentor.ifPresent(pastMeeting::setMentor);
+        final Meeting savedPastMeeting = meetingRepository.save(pastMeeting);
+
+        //create free meeting
+        final Meeting freeMeeting = new Meeting();
+        freeMeeting.setMeetingDate(LocalDate.now().plusDays(1));
+        freeMeeting.setMeetingStartTime(LocalTime.of(10, 0, 0, 0));
+        freeMeeting.setMeetingEndTime(LocalTime.of(10, 15, 0, 0));
+        freeMeeting.setCreateAt(LocalDateTime.now());
+        foundMentor.ifPresent(freeMeeting::setMentor);
+        final Meeting savedFreeMeeting = meetingRepository.save(freeMeeting);
+
+        //create booked meeting
+        final Meeting bookedMeeting = new Meeting();
+        bookedMeeting.setMeetingDate(LocalDate.now().plusDays(1));
+        bookedMeeting.setMeetingStartTime(LocalTime.of(10, 15, 0, 0));
+        bookedMeeting.setMeetingEndTime(LocalTime.of(10, 30, 0, 0));
+        bookedMeeting.setCreateAt(LocalDateTime.now());
+        foundMentor.ifPresent(bookedMeeting::setMentor);
+        final Meeting savedBookedMeeting = meetingRepository.save(bookedMeeting);
+        savedBookedMeeting.setBooked(true);
+        meetingRepository.save(savedBookedMeeting);
+
+        assertEquals(4, meetingRepository.count());
+        final String jwt = login(student.getEmail(), student.getPassword());
+
+        final MvcResult result = mockMvc.perform(get("/api/meetings/available")
+                .param("from", LocalDate.now().minusDays(1).toString())
+                .param("to", LocalDate.now().plusDays(1).toString())
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer " + jwt))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        final List<Meeting> availableMeetings = mapper.readValue(result.getResponse().getContentAsString(),
+                new TypeReference<>() {
+                });
+
+        assertTrue(availableMeetings.stream().anyMatch(meeting -> meeting.getId().equals(savedFreeMeeting.getId())));
+        assertTrue(availableMeetings.stream().noneMatch(meeting -> meeting.getId().equals(savedPastMeeting.getId())));
+        assertTrue(availableMeetings.stream().noneMatch(meeting -> meeting.getId().equals(savedBookedMeeting.getId())));
+
+        final MvcResult nextResult = mockMvc.perform(get("/api/meetings/available/next")
+                .param("limit", "1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer " + jwt))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        final List<Meeting> nextMeetings = mapper.readValue(nextResult.getResponse().getContentAsString(),
+                new TypeReference<>() {
+                });
+
+        assertEquals(1, nextMeetings.size());
+        assertFalse(nextMeetings.get(0).getBooked());
+        assertNotEquals(savedPastMeeting.getId(), nextMeetings.get(0).getId());
+    }
+
+    @Test
+    void exportMeetings_meetingsInDatabase_oneLinePerMeeting() throws Exception {
+
+        addMeetingsOfOtherMentor();
+        final String jwt = login(mentor.getEmail(), mentor.getPassword());
+
+        final MvcResult export = mockMvc.perform(get("/api/meetings/export")
+                .header("Authorization", "Bearer " + jwt))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        final MvcResult result = mockMvc.perform(asyncDispatch(export))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn();
+
+        final String[] lines = result.getResponse().getContentAsString().split("\n");
+        assertEquals(3, lines.length);
+        for (String line : lines)
+            assertTrue(new JSONObject(line).getJSONObject("mentor").has("email"));
+    }
+
+    @Test
+    void exportMeetings_allExportsRunning_serviceUnavailableWithRetryAfter() throws Exception {
+
+        final String jwt = login(mentor.getEmail(), mentor.getPassword());
+
+        //the permits are taken as if the exports of slow clients were streaming
+        final Semaphore exports = (Semaphore) ReflectionTestUtils.getField(AopTestUtils.getUltimateTargetObject(exportService), "exports");
+        final int permits = Objects.requireNonNull(exports).drainPermits();
+
+        try {
+            mockMvc.perform(get("/api/meetings/export")
+                    .header("Authorization", "Bearer " + jwt))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string("Retry-After", "5"))
+                    .andExpect(result -> assertTrue(result.getResolvedException() instanceof ExportBusyException));
+        } finally {
+            exports.release(permits);
+        }
+
+        //a finished export gives its permit back
+        for (int i = 0; i < permits + 1; i++) {
+            final MvcResult export = mockMvc.perform(get("/api/meetings/export")
+                    .header("Authorization", "Bearer " + jwt))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            mockMvc.perform(asyncDispatch(export))
+                    .andExpect(status().isOk());
+        }
+        assertEquals(permits, exports.availablePermits());
+    }
+
+    @Test
+    void getCalendar_calendarConsistentWithDatabase() throws Exception {
+
+        //book meeting
+        final Optional<Meeting> foundMeeting = meetingRepository.findById(meetingId);
+        foundMeeting.ifPresent(value -> {
+            value.setBooked(true);
+            meetingRepository.save(value);
+        });
+
+        final String jwt = login(mentor.getEmail(), mentor.getPassword());
+
+        mockMvc.perform(get("/api/meetings/calendar")
+                .param("from", LocalDate.now().toString())
+                .param("to", LocalDate.now().plusDays(1).toString())
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer " + jwt))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].meetings").value(1))
+                .andExpect(jsonPath("$[0].bookedMeetings").value(1))
+                .andExpect(jsonPath("$[0].full").value(true))
+                .andExpect(jsonPath("$[1].meetings").value(0));
+
+        mockMvc.perform(get("/api/meetings/calendar/consistency")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer " + jwt))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.consistent").value(true));
+    }
+
+    @Test
+    void verifyCalendar_calendarDiffersFromDatabase_reportedUntilRepaired() throws Exception {
+
+        //the slot disappears from the calendar only, as if it was missed
+        meetingCalendar.removeMeeting(mentorId, LocalDate.now(), LocalTime.of(19, 0), LocalTime.of(19, 15));
+        final String jwt = login(mentor.getEmail(), mentor.getPassword());
+
+        //reading the consistency does not change the calendar
+        for (int i = 0; i < 2; i++)
+            mockMvc.perform(get("/api/meetings/calendar/consistency")
+                    .header("Authorization", "Bearer " + jwt))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.consistent").value(false))
+                    .andExpect(jsonPath("$.inconsistentDates[0]").value(LocalDate.now().toString()))
+                    .andExpect(jsonPath("$.repaired").value(false));
+
+        mockMvc.perform(post("/api/meetings/calendar/consistency")
+                .header("Authorization", "Bearer " + jwt))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.inconsistentDates[0]").value(LocalDate.now().toString()))
+                .andExpect(jsonPath("$.repaired").value(true));
+
+        mockMvc.perform(get("/api/meetings/calendar/consistency")
+                .header("Authorization", "Bearer " + jwt))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.consistent").value(true));
+        assertEquals(1, meetingCalendar.describeDay(LocalDate.now()).getMeetings());
+    }
+
+    @Test
+    void addMeeting_slotMissingInCalendar_collisionFoundInDatabase() throws Exception {
+
+        //a slot added through another instance is not in the calendar of this one
+        meetingCalendar.removeMeeting(mentorId, LocalDate.now(), LocalTime.of(19, 0), LocalTime.of(19, 15));
+        final JSONObject createMeetingRequestJson = new JSONObject()
+                .put("meetingDate", LocalDate.now().toString())
+                .put("meetingStartTime", "18:45:00")
+                .put("meetingEndTime", "19:30:00");
+        final String jwt = login(mentor.getEmail(), mentor.getPassword());
+
+        mockMvc.perform(post("/api/meetings")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(createMeetingRequestJson.toString())
+                .header("Authorization", "Bearer " + jwt))
+                .andExpect(status().isBadRequest())
+                .andExpect(result -> assertTrue(result.getResolvedException() instanceof MeetingsAlreadyExistException));
+
+        assertEquals(1, meetingRepository.count());
+    }
+
     private String login(String username, String password) throws Exception {
 
         final LoginRequest loginRequest = new LoginRequest(username, password);
@@ -475,7 +1304,7 @@ class MeetingControllerTest {
 
         student = new User();
         student.setPassword("pass123456");
-        student.setPassword(bCryptPasswordEncoder.encode(student.getPassword()));
+        student.setPassword(passwordEncoder.encode(student.getPassword()));
         student.setConfirmPassword("");
         student.setName("Dawid");
         student.setSurname("Ulfik");
@@ -492,7 +1321,7 @@ class MeetingControllerTest {
         //create mentor
         mentor = new User();
         mentor.setPassword("pass999967");
-        mentor.setPassword(bCryptPasswordEncoder.encode(mentor.getPassword()));
+        mentor.setPassword(passwordEncoder.encode(mentor.getPassword()));
         mentor.setConfirmPassword("");
         mentor.setName("Daniel");
         mentor.setSurname("Kowalski");
@@ -504,6 +1333,34 @@ class MeetingControllerTest {
         mentor.setPassword("pass999967");
     }
 
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    private void addMeetingsOfOtherMentor() {
+
+        //create second mentor
+        final User otherMentor = new User();
+        otherMentor.setPassword(passwordEncoder.encode("pass777789"));
+        otherMentor.setConfirmPassword("");
+        otherMentor.setName("Anna");
+        otherMentor.setSurname("Nowak");
+        otherMentor.setEmail("anna.nowak91@gmail.com");
+        otherMentor.setUserRole(UserRole.MENTOR);
+        otherMentor.setEnabled(true);
+        final User savedOtherMentor = userRepository.save(otherMentor);
+
+        //create meetings of the second mentor tomorrow
+        for (int i = 0; i < 2; i++) {
+            final Meeting otherMeeting = new Meeting();
+            otherMeeting.setMeetingDate(LocalDate.now().plusDays(1));
+            otherMeeting.setMeetingStartTime(LocalTime.of(10, 0).plusMinutes(15 * i));
+            otherMeeting.setMeetingEndTime(otherMeeting.getMeetingStartTime().plusMinutes(15));
+            otherMeeting.setMentor(savedOtherMentor);
+            meetingRepository.save(otherMeeting);
+        }
+    }
+
     private void createMeeting() {
 
         //create meeting
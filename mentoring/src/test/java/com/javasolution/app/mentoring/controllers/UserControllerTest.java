@@ -14,6 +14,13 @@ import com.javasolution.app.mentoring.repositories.MeetingRepository;
 import com.javasolution.app.mentoring.repositories.UserRepository;
 import com.javasolution.app.mentoring.requests.LoginRequest;
 import com.javasolution.app.mentoring.requests.UpdateUserRequest;
+import com.javasolution.app.mentoring.security.BoundedPasswordEncoder;
+import com.javasolution.app.mentoring.services.MeetingCalendar;
+import com.javasolution.app.mentoring.services.UserDetailsCache;
+import com.javasolution.app.mentoring.services.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.json.JSONObject;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -22,11 +29,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.persistence.EntityManagerFactory;
 import java.io.IOException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -34,13 +43,19 @@ import java.time.LocalTime;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
-@SpringBootTest
+//statistics count the statements of this context only, the outbox dispatcher runs just at startup
+@SpringBootTest(properties = "mentoring.mail.outbox.poll-interval=3600000")
 @AutoConfigureMockMvc
 @ActiveProfiles("h2")
 class UserControllerTest {
@@ -49,7 +64,7 @@ class UserControllerTest {
     private MockMvc mockMvc;
 
     @Autowired
-    private BCryptPasswordEncoder bCryptPasswordEncoder;
+    private BoundedPasswordEncoder passwordEncoder;
 
     @Autowired
     private ConfirmationTokenRepository confirmationTokenRepository;
@@ -66,6 +81,24 @@ class UserControllerTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MeetingCalendar meetingCalendar;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserDetailsCache userDetailsCache;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     private User mentor;
     private User student;
 
@@ -92,7 +125,7 @@ class UserControllerTest {
         //create student
         student = new User();
         student.setPassword("pass123456");
-        student.setPassword(bCryptPasswordEncoder.encode(student.getPassword()));
+        student.setPassword(passwordEncoder.encode(student.getPassword()));
         student.setConfirmPassword("");
         student.setName("Dawid");
         student.setSurname("Ulfik");
@@ -109,7 +142,7 @@ class UserControllerTest {
         //create mentor
         mentor = new User();
         mentor.setPassword("pass999967");
-        mentor.setPassword(bCryptPasswordEncoder.encode(mentor.getPassword()));
+        mentor.setPassword(passwordEncoder.encode(mentor.getPassword()));
         mentor.setConfirmPassword("");
         mentor.setName("Daniel");
         mentor.setSurname("Kowalski");
@@ -199,6 +232,49 @@ class UserControllerTest {
         assertEquals(2, userRepository.count());
     }
 
+    @Test
+    void registerUser_hashingPoolFull_serviceUnavailableWithRetryAfter() throws Exception {
+
+        //occupy every hashing thread and queue slot, so the next hash is rejected
+        final ThreadPoolExecutor hashingExecutor = (ThreadPoolExecutor) ReflectionTestUtils.getField(passwordEncoder,
+                "hashingExecutor");
+        final CountDownLatch release = new CountDownLatch(1);
+        try {
+            while (true) {
+                try {
+                    Objects.requireNonNull(hashingExecutor).execute(() -> {
+                        try {
+                            release.await();
+                        } catch (final InterruptedException ex) {
+                            Thread.currentThread().interrupt();
+                        }
+                    });
+                } catch (final RejectedExecutionException ex) {
+                    break;
+                }
+            }
+
+            final User registerUserRequest = new User();
+            registerUserRequest.setEmail("dawid_19_97@interia.pl");
+            registerUserRequest.setName("Tomek");
+            registerUserRequest.setSurname("Malolepszy");
+            registerUserRequest.setPassword("pass123456");
+            registerUserRequest.setConfirmPassword("pass123456");
+            final String requestJson = new Gson().toJson(registerUserRequest);
+
+            mockMvc.perform(post("/api/users/sign-up")
+                    .content(requestJson)
+                    .contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string("Retry-After", "1"))
+                    .andExpect(result -> assertTrue(result.getResolvedException() instanceof PasswordHashingBusyException));
+        } finally {
+            release.countDown();
+        }
+
+        assertEquals(2, userRepository.count());
+    }
+
     @Test
     void deleteUser_userInDatabase_userDeleted() throws Exception {
 
@@ -245,6 +321,70 @@ class UserControllerTest {
         assertEquals(false, foundMeeting.getBooked());
     }
 
+    @Test
+    void deleteUser_userCachedAgainBeforeCommit_existingJwtRejected() throws Exception {
+
+        final String studentJwt = login(student.getEmail(), student.getPassword());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            userService.deleteUser(String.valueOf(studentId));
+
+            //a request of the student authenticates before the deletion commits and caches the user again
+            assertNotNull(CompletableFuture.supplyAsync(() -> userDetailsCache.get(student.getEmail())).join());
+        });
+
+        mockMvc.perform(get("/api/users/me")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer " + studentJwt))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void deleteUser_studentWithManyBookings_constantNumberOfStatements() throws Exception {
+
+        final User foundMentor = userRepository.findById(mentorId).orElseThrow();
+        final User foundStudent = userRepository.findById(studentId).orElseThrow();
+
+        //create booked meetings
+        for (int i = 0; i < 20; i++) {
+            final Meeting meeting = new Meeting();
+            meeting.setMeetingDate(LocalDate.now());
+            meeting.setMeetingStartTime(LocalTime.of(8, 0).plusMinutes(15 * i));
+            meeting.setMeetingEndTime(meeting.getMeetingStartTime().plusMinutes(15));
+            meeting.setMentor(foundMentor);
+            final Meeting savedMeeting = meetingRepository.save(meeting);
+            savedMeeting.setBooked(true);
+            meetingRepository.save(savedMeeting);
+
+            final MeetingBooking meetingBooking = new MeetingBooking();
+            meetingBooking.setMeeting(savedMeeting);
+            meetingBooking.setStudent(foundStudent);
+            meetingBookingRepository.save(meetingBooking);
+        }
+
+        assertEquals(20, meetingCalendar.describeDay(LocalDate.now()).getBookedMeetings());
+
+        final String jwt = login(mentor.getEmail(), mentor.getPassword());
+        //the student is read from the database, not from the second-level cache
+        entityManagerFactory.getCache().evictAll();
+        final Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        mockMvc.perform(delete("/api/users/{userId}", studentId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer " + jwt))
+                .andExpect(status().isOk());
+
+        //user lookup, released slots, meetings update, bookings delete, tokens delete and user delete
+        assertEquals(6, statistics.getPrepareStatementCount());
+        assertEquals(0, meetingBookingRepository.count());
+        meetingRepository.findAll().forEach(meeting -> assertFalse(meeting.getBooked()));
+
+        //the calendar frees the slots once the deletion is committed
+        assertEquals(0, meetingCalendar.describeDay(LocalDate.now()).getBookedMeetings());
+        assertEquals(20, meetingCalendar.describeDay(LocalDate.now()).getFreeMeetings());
+    }
+
     @Test
     void deleteUser_userNotInDatabase_userNotFoundException() throws Exception {
 
@@ -381,6 +521,36 @@ class UserControllerTest {
         assertEquals(student.getEmail(), users.get(1).getEmail());
     }
 
+    @Test
+    void getAllUsers_onlyListedColumnsReturned() throws Exception {
+
+        final String jwt = login(mentor.getEmail(), mentor.getPassword());
+
+        mockMvc.perform(get("/api/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer " + jwt))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].email").value(mentor.getEmail()))
+                .andExpect(jsonPath("$[0].userRole").value(UserRole.MENTOR.name()))
+                .andExpect(jsonPath("$[0].password").doesNotExist())
+                .andExpect(jsonPath("$[0].createAt").doesNotExist())
+                .andExpect(jsonPath("$[0].locked").doesNotExist());
+    }
+
+    @Test
+    void getMentors_mentorsReturnedWithoutPasswords() throws Exception {
+
+        final String jwt = login(student.getEmail(), student.getPassword());
+
+        mockMvc.perform(get("/api/users/mentors")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("Authorization", "Bearer " + jwt))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].email").value(mentor.getEmail()))
+                .andExpect(jsonPath("$[0].password").doesNotExist());
+    }
+
     @Test
     void getMe() throws Exception {
 
@@ -393,6 +563,30 @@ class UserControllerTest {
                 .andExpect(jsonPath("$.email").value(student.getEmail()));
     }
 
+    @Test
+    void getMe_userCachedAfterSignIn_noUserQueryForAuthentication() throws Exception {
+
+        final String jwt = login(student.getEmail(), student.getPassword());
+        final double hitsBefore = userDetailsCacheHits();
+
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(get("/api/users/me")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .header("Authorization", "Bearer " + jwt))
+                    .andExpect(status().isOk());
+        }
+
+        assertEquals(hitsBefore + 2, userDetailsCacheHits());
+    }
+
+    private double userDetailsCacheHits() {
+        return meterRegistry.get("cache.gets")
+                .tag("cache", "userDetails")
+                .tag("result", "hit")
+                .functionCounter()
+                .count();
+    }
+
     @Test
     void authenticateUser_userInDatabase_userReceivedAccess() throws Exception {
 